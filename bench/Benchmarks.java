@@ -0,0 +1,263 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro benchmarks for the agent's hot paths: A* on synthetic maps, map updates with flood fill,
+ * checking the items still needed for a path, a full turn of the agent on the maps in input/, rollouts
+ * of the game simulator that are taken back with undo, and the packed inventory and open list heap used by every search.
+ * Each benchmark is warmed up and then run for a fixed time, reporting throughput, the 50th and 99th
+ * percentile latency of a single operation and the bytes allocated per operation. Operations too short for
+ * the clock are timed in batches, and their latencies are the time of a batch divided by its size.
+ *
+ * Compile together with src/ and run from the repository root:
+ * java -cp bin Benchmarks [-w warmupSeconds] [-t measureSeconds] [nameFilter]
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public class Benchmarks {
+	// Latencies past this many samples are not recorded, so recording never allocates mid run
+	private static final int maxSamples = 1 << 22;
+	private static final int[] searchSizes = { 20, 80, 150, 400 };
+	// Operations in a timed batch for the benchmarks that take well under a microsecond
+	private static final int batchSize = 1000;
+
+	private interface Operation {
+		void run();
+	}
+
+	private static long[] samples = new long[maxSamples];
+	private static long warmupNanos = 1_000_000_000L;
+	private static long measureNanos = 3_000_000_000L;
+	// Consumes results so the JIT cannot drop the work that produced them
+	private static long sink;
+
+	/**
+	 * Warms up and then measures an operation, printing one line of results
+	 * @param name		Name of the benchmark
+	 * @param op		Operation to be timed
+	 */
+	private static void measure(String name, Operation op) {
+		measure(name, 1, op);
+	}
+
+	/**
+	 * Warms up and then measures an operation run a number of times between reads of the clock,
+	 * printing one line of results
+	 * @param name		Name of the benchmark
+	 * @param batch		Runs of the operation in each timed sample
+	 * @param op		Operation to be timed
+	 */
+	private static void measure(String name, int batch, Operation op) {
+		long end = System.nanoTime() + warmupNanos;
+		while (System.nanoTime() < end) op.run();
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		long ops = 0;
+		int recorded = 0;
+		long start = System.nanoTime();
+		end = start + measureNanos;
+		long now = start;
+		while (now < end) {
+			for (int i = 0; i < batch; i++) op.run();
+			long after = System.nanoTime();
+			if (recorded < maxSamples) samples[recorded++] = after - now;
+			ops += batch;
+			now = after;
+		}
+		long elapsed = now - start;
+		long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+		Arrays.sort(samples, 0, recorded);
+		System.out.printf("%-28s %12.1f %10.3f %10.3f %12.1f\n", name, ops / (elapsed / 1e9),
+				samples[recorded / 2] / 1e3 / batch, samples[(int) (recorded * 0.99)] / 1e3 / batch, (double) allocated / ops);
+	}
+
+	/**
+	 * A* from the start to the far corner of a synthetic map
+	 */
+	private static void benchAstar(SyntheticMap.Kind kind, int size) {
+		SyntheticMap layout = new SyntheticMap(kind, size, 42);
+		Graph graph = new Graph(new Random(42));
+		layout.applyTo(graph);
+		Behaviour explore = new Explore(graph, graph.getItems(), layout.farCorner());
+		measure("astar." + kind.name().toLowerCase() + "." + size, () -> {
+			PathBuffer path = graph.astar(explore, Direction.NORTH);
+			sink += (path == null) ? -1 : path.size();
+		});
+	}
+
+	/**
+	 * Map updates for an agent walking back and forth across an open map. The rows the agent sees
+	 * are recorded once from the game engine and replayed, the walk ends where it started so the
+	 * replay stays consistent with the map.
+	 */
+	private static void benchUpdateMap() throws IOException {
+		File world = File.createTempFile("bench", ".in");
+		world.deleteOnExit();
+		try (FileWriter out = new FileWriter(world)) {
+			int size = 78;
+			for (int y = 0; y < size; y++) {
+				StringBuilder line = new StringBuilder();
+				for (int x = 0; x < size; x++) {
+					boolean border = x < 2 || y < 2 || x >= size - 2 || y >= size - 2;
+					line.append(border ? '~' : (x == size / 2 && y == size / 2) ? '^' : ' ');
+				}
+				out.write(line.append('\n').toString());
+			}
+		}
+
+		Stepping engine = new Stepping(world.getPath());
+		Graph graph = new Graph(new Random(42));
+		graph.initialiseMap(engine.get_view());
+		List<char[]> rows = new ArrayList<char[]>();
+		List<Direction> directions = new ArrayList<Direction>();
+		Direction facing = Direction.NORTH.changeDirection('r');
+		engine.apply('r');
+		// East to the water, west to the water, then east back to the start
+		int stepsEast = 0;
+		for (int leg = 0; leg < 3; leg++) {
+			int steps = 0;
+			while ((leg < 2) ? engine.get_view()[1][2] == ' ' : steps < stepsEast) {
+				engine.apply('f');
+				rows.add(engine.get_view()[0].clone());
+				directions.add(facing);
+				steps++;
+			}
+			if (leg == 0) stepsEast = steps;
+			if (leg == 1) stepsEast = steps - stepsEast;
+			engine.apply('r');
+			engine.apply('r');
+			facing = facing.changeDirection('r').changeDirection('r');
+		}
+
+		int[] next = { 0 };
+		measure("updateMap.floodFill", batchSize, () -> {
+			int i = next[0];
+			graph.updateMap(rows.get(i), directions.get(i));
+			next[0] = (i + 1 == rows.size()) ? 0 : i + 1;
+		});
+	}
+
+	/**
+	 * Items still required along a long path through a maze
+	 */
+	private static void benchItemsStillRequired() {
+		SyntheticMap layout = new SyntheticMap(SyntheticMap.Kind.Maze, 80, 42);
+		Graph graph = new Graph(new Random(42));
+		layout.applyTo(graph);
+		PathBuffer path = new PathBuffer();
+		path.copyFrom(graph.astar(new Explore(graph, graph.getItems(), layout.farCorner()), Direction.NORTH));
+		measure("itemsStillRequired.maze.80", () -> {
+			sink += graph.itemsStillRequiredForTravel(path, graph.getPlayerPos()).size();
+		});
+	}
+
+	/**
+	 * One turn of the agent, playing the maps in input/ one after another with a fixed seed
+	 */
+	private static void benchGetAction() throws IOException {
+		List<Stepping> maps = new ArrayList<Stepping>();
+		for (int i = 0; i <= 6; i++) {
+			maps.add(new Stepping("input/s" + i + ".in"));
+		}
+		// Current engine and agent, replaced when a game ends
+		Object[] game = { null, null };
+		int[] state = { 0, 0 };
+		measure("agent.getAction", () -> {
+			if (game[0] == null) {
+				game[0] = new Stepping(maps.get(state[0]));
+				game[1] = new Agent(new Random(state[0]));
+				state[0] = (state[0] + 1) % maps.size();
+				state[1] = 0;
+			}
+			Stepping engine = (Stepping) game[0];
+			engine.apply(((Agent) game[1]).get_action(engine.get_view()));
+			if (engine.game_won() || engine.game_lost() || ++state[1] == 10000) game[0] = null;
+		});
+	}
+
+	/**
+	 * A rollout of random actions on the simulator that is then undone, compared with copying the game
+	 */
+	private static void benchRollout() throws IOException {
+		Simulator sim = new Stepping("input/s6.in").simulator();
+		Random rand = new Random(1);
+		byte[] actions = new byte[32];
+		byte[] choices = { 'F', 'F', 'F', 'L', 'R', 'C', 'U' };
+		measure("simulator.rollout.32", () -> {
+			for (int i = 0; i < actions.length; i++) actions[i] = choices[rand.nextInt(choices.length)];
+			sink += sim.applySequence(actions);
+			sim.undoTo(0);
+		});
+		measure("simulator.copy", batchSize, () -> {
+			sink += new Simulator(sim).getRow();
+		});
+	}
+
+	/**
+	 * Picking up an item, checking for stepping stones and using one on a packed inventory
+	 */
+	private static void benchInventory() {
+		Tile[] items = { Tile.Axe, Tile.StepStone, Tile.Key, Tile.StepStone, Tile.Gold };
+		int[] state = { Inventory.empty, 0 };
+		measure("inventory.pickUpAndUse", batchSize, () -> {
+			int inv = Inventory.add(state[0], items[state[1]]);
+			if (Inventory.has(inv, Tile.StepStone) && Inventory.hasAxe(inv)) inv = Inventory.useStone(inv);
+			sink += Inventory.stones(inv);
+			state[0] = Inventory.hasGold(inv) ? Inventory.empty : inv;
+			state[1] = (state[1] + 1 == items.length) ? 0 : state[1] + 1;
+		});
+	}
+
+	/**
+	 * Polling the lowest cell from a heap the size of a large open list and putting it back with a new key
+	 */
+	private static void benchHeap() {
+		int cells = 4096;
+		CellHeap heap = new CellHeap(cells);
+		Random rand = new Random(42);
+		long[] keys = new long[1 << 16];
+		for (int i = 0; i < keys.length; i++) keys[i] = CellHeap.key(rand.nextInt(1000), rand.nextInt(1000));
+		for (int cell = 0; cell < cells; cell++) heap.update(cell, keys[cell]);
+		int[] next = { cells };
+		measure("cellHeap.pollUpdate." + cells, batchSize, () -> {
+			int cell = heap.poll();
+			heap.update(cell, keys[next[0]++ & (keys.length - 1)]);
+			sink += cell;
+		});
+	}
+
+	public static void main(String[] args) throws IOException {
+		String filter = "";
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-w") && i + 1 < args.length) {
+				warmupNanos = (long) (Double.parseDouble(args[++i]) * 1e9);
+			} else if (args[i].equals("-t") && i + 1 < args.length) {
+				measureNanos = (long) (Double.parseDouble(args[++i]) * 1e9);
+			} else {
+				filter = args[i];
+			}
+		}
+
+		System.out.printf("%-28s %12s %10s %10s %12s\n", "Benchmark", "ops/s", "p50 us", "p99 us", "alloc B/op");
+		for (SyntheticMap.Kind kind: SyntheticMap.Kind.values()) {
+			for (int size: searchSizes) {
+				if (("astar." + kind.name().toLowerCase() + "." + size).contains(filter)) benchAstar(kind, size);
+			}
+		}
+		if ("updateMap.floodFill".contains(filter)) benchUpdateMap();
+		if ("itemsStillRequired.maze.80".contains(filter)) benchItemsStillRequired();
+		if ("agent.getAction".contains(filter)) benchGetAction();
+		if ("simulator.rollout.32 simulator.copy".contains(filter)) benchRollout();
+		if ("inventory.pickUpAndUse".contains(filter)) benchInventory();
+		if ("cellHeap.pollUpdate.4096".contains(filter)) benchHeap();
+		if (sink == 42) System.out.println();
+	}
+}
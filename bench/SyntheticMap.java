@@ -0,0 +1,110 @@
+import java.awt.Point;
+import java.util.Random;
+
+/**
+ * Square test map for the benchmarks, laid out around the agent's starting position (80, 80)
+ * and surrounded by a wall so searches cannot wander into unexplored tiles.
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public class SyntheticMap {
+	public static final int centre = 80;
+
+	public enum Kind {
+		Open, Maze, Water
+	}
+
+	private final Tile[][] tiles;
+	private final int low;
+
+	/**
+	 * Generates a map
+	 * @param kind		Layout of the map
+	 * @param size		Width and height of the map including its wall, at least 3 and only limited by memory
+	 * @param seed		Seed for the maze and water layouts
+	 */
+	public SyntheticMap(Kind kind, int size, long seed) {
+		// The starting position has to be an odd offset from the corner so it lies on a maze cell
+		int half = size / 2;
+		if (half % 2 == 0) half--;
+		low = centre - half;
+		tiles = new Tile[size][size];
+		Random rand = new Random(seed);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				boolean border = x == 0 || y == 0 || x == size - 1 || y == size - 1;
+				switch (kind) {
+				case Maze:
+					tiles[y][x] = Tile.Wall;
+					break;
+				case Water:
+					tiles[y][x] = border ? Tile.Wall : (rand.nextInt(100) < 30) ? Tile.Water : Tile.Empty;
+					break;
+				default:
+					tiles[y][x] = border ? Tile.Wall : Tile.Empty;
+					break;
+				}
+			}
+		}
+		if (kind == Kind.Maze) carveMaze(rand);
+		tiles[half][half] = Tile.Empty;
+		tiles[1][1] = Tile.Empty;
+	}
+
+	/**
+	 * Copies the map into a graph
+	 * @param graph		Graph whose map is overwritten
+	 */
+	public void applyTo(Graph graph) {
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles.length; x++) {
+				graph.setTile(low + x, low + y, tiles[y][x]);
+			}
+		}
+		graph.setTile(centre, centre, Tile.StartPosition);
+	}
+
+	/**
+	 * Corner of the map furthest from the start that can always be walked on
+	 * @return		Location of the corner in graph coordinates
+	 */
+	public Point farCorner() {
+		return new Point(low + 1, low + 1);
+	}
+
+	/**
+	 * Carves a perfect maze through the odd cells with an iterative depth first search
+	 */
+	private void carveMaze(Random rand) {
+		int n = tiles.length;
+		int[] stack = new int[n * n];
+		int top = 0;
+		tiles[1][1] = Tile.Empty;
+		stack[top++] = n + 1;
+		int[] dx = { 0, 0, 2, -2 };
+		int[] dy = { 2, -2, 0, 0 };
+		int[] order = { 0, 1, 2, 3 };
+		while (top > 0) {
+			int cell = stack[top - 1];
+			int x = cell % n;
+			int y = cell / n;
+			for (int i = 3; i > 0; i--) {
+				int j = rand.nextInt(i + 1);
+				int t = order[i];
+				order[i] = order[j];
+				order[j] = t;
+			}
+			boolean moved = false;
+			for (int i: order) {
+				int nx = x + dx[i];
+				int ny = y + dy[i];
+				if (nx <= 0 || ny <= 0 || nx >= n - 1 || ny >= n - 1 || tiles[ny][nx] != Tile.Wall) continue;
+				tiles[y + dy[i] / 2][x + dx[i] / 2] = Tile.Empty;
+				tiles[ny][nx] = Tile.Empty;
+				stack[top++] = ny * n + nx;
+				moved = true;
+				break;
+			}
+			if (!moved) top--;
+		}
+	}
+}
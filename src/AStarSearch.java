@@ -0,0 +1,446 @@
+import java.awt.Point;
+import java.util.Arrays;
+
+/**
+ * A* search engine used by the Graph. Cells are addressed by their index in the world map and every
+ * piece of per-cell search data (g cost, parent link, direction moved, packed inventory) lives in arrays
+ * that are reused between searches and only grow when the map allocates new chunks, so expanding a node
+ * does not allocate anything. Only allocated chunks are searched.
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Graph#astar(Behaviour, Direction)
+ */
+public class AStarSearch {
+	// Spending the last stepping stone leaves the agent unable to cross water again, so a path that
+	// does it is only taken when every path that keeps a stone is at least this much longer
+	private static final int lastStoneCost = 16;
+	private static final byte usesStoneFlag = 1;
+	private static final Direction[] directions = Direction.values();
+	private static final int maxGroups = 8;
+
+	private WorldMap world;
+
+	// Per cell search data, only valid for cells whose opened stamp matches the current search
+	private int[] gCost;
+	private int[] parent;
+	private int[] inventory;
+	private byte[] moveDir;
+	private byte[] flags;
+	// A cell is opened/closed in this search if its stamp equals searchId, bumping searchId clears both sets
+	private int[] opened;
+	private int[] closed;
+	private int searchId;
+	private int nodesExpanded;
+
+	// Open list ordered by (fCost, push order), a cell is in it at most once
+	// Equal f costs are expanded in the order they were last improved
+	private CellHeap open;
+	private int pushCount;
+
+	private Point goalPoint;
+	private Point scratch;
+	private int goalCell;
+	private int startCell;
+
+	// Cells marked as targets of a multi goal search, a cell is a target if its stamp equals targetId
+	private int[] targetStamp;
+	private byte[] targetGroup;
+	private int targetId;
+	// Location of every target, the heuristic is the Manhattan distance to the closest of them
+	private int[] targetX;
+	private int[] targetY;
+	private int targetCount;
+	// Nearest cell and its cost for each target group, -1 if the group was not reached
+	private int[] nearestCell;
+	private int[] nearestCost;
+	private boolean multiGoal;
+	// Set while building a distance map, which has no goal and so no heuristic
+	private boolean distanceMap;
+
+	// Parameters of the current search
+	private Behaviour behaviour;
+	private boolean canUseStone;
+	private boolean getGold;
+
+	/**
+	 * Constructor for the search engine
+	 * @param world			Map of the graph, it is read directly so it must be the live map
+	 */
+	public AStarSearch(WorldMap world) {
+		this.world = world;
+		int cells = Math.max(world.getCapacity(), WorldMap.chunkCells);
+		gCost = new int[cells];
+		parent = new int[cells];
+		inventory = new int[cells];
+		moveDir = new byte[cells];
+		flags = new byte[cells];
+		opened = new int[cells];
+		closed = new int[cells];
+		open = new CellHeap(cells);
+		goalPoint = new Point();
+		scratch = new Point();
+		targetStamp = new int[cells];
+		targetGroup = new byte[cells];
+		targetX = new int[16];
+		targetY = new int[16];
+		nearestCell = new int[maxGroups];
+		nearestCost = new int[maxGroups];
+	}
+
+	/**
+	 * Runs A* from a start point to a goal point.
+	 * @param start				Location of the player
+	 * @param startDirection	Direction the player is facing
+	 * @param goal				Location of the goal
+	 * @param b					Behaviour being used, supplies the heuristic and whether stones can be used
+	 * @param inv				Packed inventory of the player
+	 * @param getGold			If the goal is the gold or an item, unexplored tiles cannot be passed after a stone is used
+	 * @return					True if a path to the goal was found
+	 */
+	public boolean search(Point start, Direction startDirection, Point goal, Behaviour b,
+			int inv, boolean getGold) {
+		this.behaviour = b;
+		this.canUseStone = b.canUseStone();
+		this.getGold = getGold;
+		multiGoal = false;
+		distanceMap = false;
+		goalPoint.setLocation(goal);
+		goalCell = world.cellAt(goal.x, goal.y);
+		if (goalCell < 0 || !start(start, startDirection, inv)) return false;
+
+		while (!open.isEmpty()) {
+			int cell = open.poll();
+			closed[cell] = searchId;
+			if (cell == goalCell) return true;
+			nodesExpanded++;
+			expandAll(cell);
+		}
+		return false;
+	}
+
+	/**
+	 * Clears the targets of the previous multi goal search
+	 */
+	public void clearTargets() {
+		targetId++;
+		if (targetId == Integer.MAX_VALUE) {
+			Arrays.fill(targetStamp, 0);
+			targetId = 1;
+		}
+		targetCount = 0;
+	}
+
+	/**
+	 * Marks a cell as a target of the next multi goal search
+	 * @param x				X coordinate of the target
+	 * @param y				Y coordinate of the target
+	 * @param group			Group the target is counted in, below 8
+	 */
+	public void addTarget(int x, int y, int group) {
+		int cell = world.cellAt(x, y);
+		if (cell < 0) return;
+		ensureCapacity();
+		if (targetStamp[cell] == targetId) return;
+		targetStamp[cell] = targetId;
+		targetGroup[cell] = (byte) group;
+		if (targetCount == targetX.length) {
+			targetX = Arrays.copyOf(targetX, targetCount * 2);
+			targetY = Arrays.copyOf(targetY, targetCount * 2);
+		}
+		targetX[targetCount] = x;
+		targetY[targetCount] = y;
+		targetCount++;
+	}
+
+	/**
+	 * Runs a single search from the start that finds the nearest target of every group added since
+	 * the last clearTargets. The heuristic is the distance to the closest target of any group, which is
+	 * consistent and zero on every target, so each target is closed with its cheapest cost and the first
+	 * one closed in a group is the nearest of that group. The search stops once every group has been
+	 * reached or there is nothing left to expand, so it costs at most one search over the reachable area
+	 * instead of one search per group.
+	 * @param start				Location of the player
+	 * @param startDirection	Direction the player is facing
+	 * @param groups			Number of target groups, groups are numbered from 0
+	 * @param canUseStone		If stepping stones can be placed on water
+	 * @param inv				Packed inventory of the player
+	 * @param getGold			If unexplored tiles cannot be passed after a stone is used
+	 * @return					Bit mask of the groups that were reached
+	 */
+	public int searchNearest(Point start, Direction startDirection, int groups, boolean canUseStone,
+			int inv, boolean getGold) {
+		this.behaviour = null;
+		this.canUseStone = canUseStone;
+		this.getGold = getGold;
+		multiGoal = true;
+		distanceMap = false;
+		Arrays.fill(nearestCell, 0, groups, -1);
+		if (!start(start, startDirection, inv)) return 0;
+
+		int wanted = (1 << groups) - 1;
+		int found = 0;
+		while (!open.isEmpty()) {
+			int cell = open.poll();
+			closed[cell] = searchId;
+			if (targetStamp[cell] == targetId) {
+				int group = targetGroup[cell];
+				if ((found & (1 << group)) == 0) {
+					found |= 1 << group;
+					nearestCell[group] = cell;
+					nearestCost[group] = gCost[cell];
+					if (found == wanted) break;
+				}
+			}
+			nodesExpanded++;
+			expandAll(cell);
+		}
+		return found;
+	}
+
+	/**
+	 * Runs Dijkstra from the start until every cell it can reach is closed, so the cost of the cheapest
+	 * path to all of them can be read back with getCost and any of them can be walked to with getPathTo.
+	 * Unexplored cells other than the start are reached but not expanded, so the search covers the explored
+	 * area and the unexplored cells on its edge instead of every allocated chunk.
+	 * @param start				Location of the player
+	 * @param startDirection	Direction the player is facing
+	 * @param canUseStone		If stepping stones can be placed on water
+	 * @param inv				Packed inventory of the player
+	 * @return					Number of cells reached, including the start
+	 */
+	public int searchReachable(Point start, Direction startDirection, boolean canUseStone, int inv) {
+		this.behaviour = null;
+		this.canUseStone = canUseStone;
+		this.getGold = false;
+		multiGoal = false;
+		distanceMap = true;
+		if (!start(start, startDirection, inv)) return 0;
+
+		int reached = 0;
+		while (!open.isEmpty()) {
+			int cell = open.poll();
+			closed[cell] = searchId;
+			reached++;
+			if (cell != startCell && (world.flags(cell) & Tile.unexploredFlag) != 0) continue;
+			nodesExpanded++;
+			expandAll(cell);
+		}
+		return reached;
+	}
+
+	/**
+	 * Path cost to a cell found by the last search, only complete after searchReachable
+	 * @param cell			Packed cell index
+	 * @return				Cost of the cheapest path to the cell, or -1 if the search did not close it
+	 */
+	public int getCost(int cell) {
+		if (cell < 0 || cell >= closed.length || closed[cell] != searchId) return -1;
+		return gCost[cell];
+	}
+
+	/**
+	 * Cell of the nearest target of a group found by the last multi goal search
+	 * @param group			Target group
+	 * @return				Packed cell index, or -1 if no target of the group was reached
+	 */
+	public int getNearestCell(int group) {
+		return nearestCell[group];
+	}
+
+	/**
+	 * Path cost to the nearest target of a group found by the last multi goal search
+	 * @param group			Target group, must have been reached
+	 * @return				Cost of the path to the target
+	 */
+	public int getNearestCost(int group) {
+		return nearestCost[group];
+	}
+
+	/**
+	 * Number of nodes expanded by the last search
+	 * @return		Nodes expanded
+	 */
+	public int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * Writes the moves from the start to the goal of the last successful search into a path
+	 * by following the parent links back from the goal
+	 * @param path		Path to be overwritten, the start cell is not included
+	 */
+	public void getPath(PathBuffer path) {
+		getPathTo(goalCell, path);
+	}
+
+	/**
+	 * Writes the moves from the start to a cell closed by the last search into a path
+	 * @param target	Packed index of the cell, such as one returned by getNearestCell
+	 * @param path		Path to be overwritten, the start cell is not included
+	 */
+	public void getPathTo(int target, PathBuffer path) {
+		int length = 0;
+		for (int cell = target; cell != startCell; cell = parent[cell]) {
+			length++;
+		}
+		path.reset(length);
+		for (int cell = target; cell != startCell; cell = parent[cell]) {
+			path.set(--length, directions[moveDir[cell]]);
+		}
+	}
+
+	/**
+	 * Relaxes the edges from a cell to its four neighbours, always in the same order
+	 * @param cell			Cell being expanded
+	 */
+	private void expandAll(int cell) {
+		expand(cell, world.neighbour(cell, WorldMap.north), Direction.NORTH);
+		expand(cell, world.neighbour(cell, WorldMap.south), Direction.SOUTH);
+		expand(cell, world.neighbour(cell, WorldMap.west), Direction.WEST);
+		expand(cell, world.neighbour(cell, WorldMap.east), Direction.EAST);
+	}
+
+	/**
+	 * Relaxes the edge from a cell to one of its neighbours and adds the neighbour to the open list,
+	 * or lowers its key if it is already there, when the path through the cell is cheaper than any found so far.
+	 * The inventory is carried along the path so a stepping stone used on water is not available to
+	 * later cells on the same path.
+	 * @param from			Cell being expanded
+	 * @param next			Cell of the neighbour, -1 if it is outside the allocated chunks
+	 * @param d				Direction moved to reach the neighbour
+	 */
+	private void expand(int from, int next, Direction d) {
+		if (next < 0 || closed[next] == searchId) return;
+		int inv = inventory[from];
+		byte nextFlags = flags[from];
+		int cost;
+
+		// Paths that require an item require 2 moves to travel
+		// Water costs more when it uses up the last stone
+		// Unexplored tiles represent uncertainty and should be avoided if possible
+		// All other paths cost 1
+		int tile = world.flags(next);
+		if ((tile & Tile.obstacleFlag) == 0) {
+			cost = 1;
+		} else if ((tile & Tile.wallFlag) != 0) {
+			return;
+		} else if ((tile & Tile.needsKeyFlag) != 0) {
+			if (!Inventory.hasKey(inv)) return;
+			cost = 2;
+		} else if ((tile & Tile.needsAxeFlag) != 0) {
+			if (!Inventory.hasAxe(inv)) return;
+			cost = 2;
+		} else if ((tile & Tile.needsStoneFlag) != 0) {
+			if (!canUseStone || Inventory.stones(inv) == 0) return;
+			inv = Inventory.useStone(inv);
+			nextFlags |= usesStoneFlag;
+			cost = (Inventory.stones(inv) > 0) ? 2 : lastStoneCost;
+		} else {
+			// Unexplored
+			if (getGold && (flags[from] & usesStoneFlag) != 0) return;
+			cost = 3;
+		}
+
+		int g = gCost[from] + cost;
+		if (opened[next] == searchId && g >= gCost[next]) return;
+		opened[next] = searchId;
+		gCost[next] = g;
+		parent[next] = from;
+		inventory[next] = inv;
+		moveDir[next] = (byte) d.ordinal();
+		flags[next] = nextFlags;
+		if (distanceMap) {
+			push(next, g);
+			return;
+		}
+		int x = world.cellX(next);
+		int y = world.cellY(next);
+		if (multiGoal) {
+			push(next, g + nearestTarget(x, y));
+			return;
+		}
+		scratch.setLocation(x, y);
+		push(next, g + behaviour.returnHeuristic(goalPoint, scratch));
+	}
+
+	/**
+	 * Manhattan distance from a location to the closest target of a multi goal search
+	 * @param x				X coordinate of the location
+	 * @param y				Y coordinate of the location
+	 * @return				Distance to the closest target
+	 */
+	private int nearestTarget(int x, int y) {
+		int best = Integer.MAX_VALUE;
+		for (int i = 0; i < targetCount; i++) {
+			best = Math.min(best, Math.abs(targetX[i] - x) + Math.abs(targetY[i] - y));
+		}
+		return best;
+	}
+
+	/**
+	 * Starts a new search with only the start cell in the open list
+	 * @param start				Location of the player
+	 * @param startDirection	Direction the player is facing
+	 * @param inv				Packed inventory of the player
+	 * @return					False if the start is outside the allocated chunks
+	 */
+	private boolean start(Point start, Direction startDirection, int inv) {
+		ensureCapacity();
+		startCell = world.cellAt(start.x, start.y);
+		if (startCell < 0) return false;
+		nextSearchId();
+		nodesExpanded = 0;
+		open.clear();
+		pushCount = 0;
+
+		gCost[startCell] = 0;
+		parent[startCell] = -1;
+		inventory[startCell] = inv;
+		moveDir[startCell] = (byte) startDirection.ordinal();
+		flags[startCell] = 0;
+		opened[startCell] = searchId;
+		push(startCell, 0);
+		return true;
+	}
+
+	/**
+	 * Grows the per cell arrays to cover every chunk the map has allocated.
+	 * New cells have stamps of 0, which no search id uses, so they read as neither opened nor closed.
+	 */
+	private void ensureCapacity() {
+		int cells = world.getCapacity();
+		if (cells <= gCost.length) return;
+		cells = Math.max(cells, gCost.length * 2);
+		gCost = Arrays.copyOf(gCost, cells);
+		parent = Arrays.copyOf(parent, cells);
+		inventory = Arrays.copyOf(inventory, cells);
+		moveDir = Arrays.copyOf(moveDir, cells);
+		flags = Arrays.copyOf(flags, cells);
+		opened = Arrays.copyOf(opened, cells);
+		closed = Arrays.copyOf(closed, cells);
+		targetStamp = Arrays.copyOf(targetStamp, cells);
+		targetGroup = Arrays.copyOf(targetGroup, cells);
+		open.ensureCapacity(cells);
+	}
+
+	/**
+	 * Starts a new search id so every cell reads as neither opened nor closed.
+	 * The stamp arrays only need to be wiped when the id wraps around.
+	 */
+	private void nextSearchId() {
+		searchId++;
+		if (searchId == Integer.MAX_VALUE) {
+			Arrays.fill(opened, 0);
+			Arrays.fill(closed, 0);
+			searchId = 1;
+		}
+	}
+
+	/**
+	 * Adds a cell to the open list or lowers its f cost if it is already in it
+	 * @param cell			Cell index
+	 * @param fCost			Priority of the cell
+	 */
+	private void push(int cell, int fCost) {
+		open.update(cell, CellHeap.key(fCost, pushCount++));
+	}
+}
@@ -1,8 +1,5 @@
 import java.awt.Point;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
 import java.util.*;
 
 /**
@@ -25,16 +22,22 @@ import java.util.*;
  * - GetItem: Goal is to pick up the specified item
  * - Explore: Goal is to explore the map up to the specified point
  *  > Constraint: Cannot use a stepping stone while exploring
+ * - PlanAhead (optional, see usePlanAhead): Replaces GetItem and Explore with trips chosen by Monte Carlo tree search
+ *  > Constraint: Only trips that use no stepping stones are planned, otherwise GetItem and Explore are used
  *
  * Algorithms:
  * - Flood fill exploration: Used to allow the map to be explored in a manner similar to depth first search to maximise 
  *	 the ratio of moves to tiles explored initially.
  * - A* search: Used to find an optimal path to the goal of the current behaviour using the Manhattan distance 
+ * - Frontier exploration: Once flood fill runs out, one Dijkstra search from the agent costs every unexplored tile on
+ *   the edge of the known map, and the one revealing the most unexplored tiles per move is explored to
  *
  * Data structures used:
- * - Map: 2D array of 161 by 161 Tiles. The maximum map size is 80 x 80 so using an array is used for O(1) access
- * - Visited points on the map: Hashmap using the coordinates converted into a string as a key. Used for O(1) access
- * - A stack is used for storing points to explore for customised flood fill algorithm
+ * - Map: Unbounded map of 16 by 16 chunks of tiles, only allocated around the area explored. Chunks are found through
+ *   a hash table and cells of allocated chunks have a fixed index, so any map size is supported with O(1) access
+ * - Visited points on the map: Bitset indexed by the cell of the map. Used for O(1) access
+ * - A stack of cell indices with a bitmap of queued cells is used for storing points to explore for customised 
+ *   flood fill algorithm
  */
 public class Agent {
 	private Graph map;
@@ -44,17 +47,31 @@ public class Agent {
 	private ArrayList<Tile> inventory;
 	private char lastAction;
 	private boolean mapInitialised;
-	private Queue<Move> exploreQueue;
+	private PathBuffer exploreQueue;
 	private Behaviour currBehaviour;
 	private boolean goldFound;
 	private Move lastMove;
-	private Queue<Move> prevPathGold;
+	private PathBuffer prevPathGold;
+	private Random rand;
+	// Item types wanted this turn, most wanted first
+	private Tile[] wantedItems;
+	private boolean planAhead;
 	
 	/**
 	 * Constructor
 	 */
 	public Agent() {
-		map = new Graph();
+		this(new Random());
+	}
+	
+	/**
+	 * Constructor for an agent whose random choices come from the given generator,
+	 * so a game can be replayed exactly by using the same seed
+	 * @param rand		Source of all random choices made by the agent
+	 */
+	public Agent(Random rand) {
+		this.rand = rand;
+		map = new Graph(rand);
 		// Assume north is where ever we face at the start
 		currDirection = Direction.NORTH;
 		lastAction = 'n';
@@ -62,12 +79,24 @@ public class Agent {
 		startPos = pos;
 		inventory = new ArrayList<Tile>();
 		mapInitialised = false;
-		exploreQueue = new LinkedList<Move>();
-		prevPathGold = new LinkedList<Move>();
+		exploreQueue = new PathBuffer();
+		prevPathGold = new PathBuffer();
+		wantedItems = new Tile[3];
 		goldFound = false;
 		lastMove = null;
 	}
 	
+	/**
+	 * Switches the agent to choosing its items and exploration targets with Monte Carlo tree search
+	 * over trips, instead of always heading for the best next one
+	 * @param iterations	Most tree search iterations for each decision
+	 * @param nanos			Most time for each decision, 0 for no time limit
+	 */
+	public void usePlanAhead(int iterations, long nanos) {
+		planAhead = true;
+		map.setPlanBudget(iterations, nanos);
+	}
+	
 	/**
 	 * Decides the agent's behaviour based on what items the agent has seen, the path it is 
 	 * currently on, whether it can reach the gold etc.
@@ -75,36 +104,89 @@ public class Agent {
 	 */
 	public Move decideBehaviours() {
 		Move m;
+		Metrics metrics = map.getMetrics();
 		// let the agent complete its previous move if it only turned in a different direction
 		if (lastMove != null) return lastMove;
 		// First priority to is find the gold and go home
+		long start = System.nanoTime();
 		m = goldCollection();
+		metrics.recordGetGold(System.nanoTime() - start);
 		if (m != null) return m;
+		// When planning ahead, items and exploration are chosen together by the tree search
+		if (planAhead) {
+			start = System.nanoTime();
+			m = plannedTrip();
+			metrics.recordPlanAhead(System.nanoTime() - start);
+			if (m != null) return m;
+		}
 		// Second priority is to get items that may help the agent get to the gold
+		start = System.nanoTime();
 		m = itemCollection();
+		metrics.recordGetItem(System.nanoTime() - start);
 		if (m != null) return m;
 		// Third priority is explore the map
+		start = System.nanoTime();
+		m = exploration();
+		metrics.recordExplore(System.nanoTime() - start);
+		if (m != null) return m;
+		// Default mode is make a random move
+		currBehaviour = new Explore(null, null, null);
+		m = map.getRandomMove();
+		while (!map.isValidMove(m.d, currBehaviour.canUseStone())) {
+			m = map.getRandomMove();
+		}
+		return m;
+	}
+	
+	/**
+	 * Continues the previous exploration path if there is one, otherwise starts exploring
+	 * towards an unvisited tile or the most promising part of the frontier
+	 * @return Valid move to explore the map or null if there is nowhere to explore to
+	 */
+	private Move exploration() {
+		Move m;
 		if (exploreQueue.size() > 0 && currBehaviour.getBehaviour() == "Explore") {
 			// Reset the behaviour to explore so that the agent can't cross water when exploring
 			currBehaviour = new Explore(null, null, null);
 			//System.out.println("On previous exploration");
-			m = exploreQueue.poll();
+			m = Move.of(exploreQueue.poll());
 			if (map.isValidMove(m.d, currBehaviour.canUseStone())) return m;
-			exploreQueue = new LinkedList<Move>();
+			exploreQueue.clear();
 		} else {
 			//System.out.println("Going to start exploration!");
 			m = exploreUnvisited();
 			if (m != null) return m;
-			m = exploreRandomDirection();
+			m = exploreFrontier();
 			if (m != null) return m;
 		}
-		// Default mode is make a random move
-		currBehaviour = new Explore(null, null, null);
-		m = map.getRandomMove();
-		while (!map.isValidMove(m.d, currBehaviour.canUseStone())) {
-			m = map.getRandomMove();
+		return null;
+	}
+	
+	/**
+	 * Continues the trip chosen by the tree search if there is one, otherwise plans the next one
+	 * @return Valid move along the trip or null if no item or frontier point can be reached
+	 */
+	private Move plannedTrip() {
+		Move m;
+		if (exploreQueue.size() > 0 && currBehaviour.getBehaviour() == "PlanAhead") {
+			m = Move.of(exploreQueue.poll());
+			if (map.isValidMove(m.d, currBehaviour.canUseStone())) return m;
+			exploreQueue.clear();
 		}
-		return m;
+		int count = 0;
+		if (map.itemSeen(Tile.StepStone)) wantedItems[count++] = Tile.StepStone;
+		if (map.itemSeen(Tile.Key) && !map.holdingItem(Tile.Key)) wantedItems[count++] = Tile.Key;
+		if (map.itemSeen(Tile.Axe) && !map.holdingItem(Tile.Axe)) wantedItems[count++] = Tile.Axe;
+		Point target = new Point();
+		PathBuffer moves = map.planAhead(wantedItems, count, currDirection, target);
+		currBehaviour = new PlanAhead(map, inventory, target);
+		if (moves != null) {
+			exploreQueue.copyFrom(moves);
+			m = Move.of(exploreQueue.poll());
+			if (m != null && map.isValidMove(m.d, currBehaviour.canUseStone())) return m;
+		}
+		exploreQueue.clear();
+		return null;
 	}
 	
 	/**
@@ -117,21 +199,28 @@ public class Agent {
 			// If the path exists and it requires no additional items use it
 			if (prevPathGold.size() != 0 && map.itemsStillRequiredForTravel(prevPathGold, pos).isEmpty()) {
 				// Checks if the next move is valid
-				if (map.isValidMove(prevPathGold.peek().d, currBehaviour.canUseStone())) {
+				if (map.isValidMove(prevPathGold.peek(), currBehaviour.canUseStone())) {
+					map.getMetrics().recordGoldPathReuse();
 					// If not facing the direction preserve the queue, as the agent has to rotate
-					if (currDirection != prevPathGold.peek().d)
-						return prevPathGold.peek();
+					if (currDirection != prevPathGold.peek())
+						return Move.of(prevPathGold.peek());
 					else
-						return prevPathGold.poll();
+						return Move.of(prevPathGold.poll());
 				}
 			}
 			currBehaviour = new GetGold(map, inventory, startPos);
-			Queue<Move> moves = map.astar(currBehaviour, currDirection);
+			PathBuffer moves = map.replan(currBehaviour, currDirection);
 			if (moves != null) {
 				// If the current path requires no additional items save it to be reused
-				if (map.itemsStillRequiredForTravel(moves, pos).isEmpty())
-					prevPathGold = moves;
-				return moves.poll();	
+				boolean reusable = map.itemsStillRequiredForTravel(moves, pos).isEmpty();
+				Move m = Move.of(moves.poll());
+				// A saved path starts where it was planned, so an older one must not outlive a newer path
+				if (reusable) {
+					prevPathGold.copyFrom(moves);
+				} else {
+					prevPathGold.clear();
+				}
+				return m;
 			}
 		}
 		return null;
@@ -143,25 +232,18 @@ public class Agent {
 	 * @return Valid move to the item
 	 */
 	private Move itemCollection() {
-		if (map.itemSeen(Tile.StepStone)) {
-			boolean canUseStone = true;
-			currBehaviour = new GetItem(map, inventory, map.getItemPos(Tile.StepStone), canUseStone);
-			Queue<Move> moves = map.astar(currBehaviour, currDirection);
-			if (moves != null) return moves.poll();	
-		}
-		if (map.itemSeen(Tile.Key) && !map.holdingItem(Tile.Key)) {
-			boolean canUseStone = true;
-			currBehaviour = new GetItem(map, inventory, map.getItemPos(Tile.Key), canUseStone);
-			Queue<Move> moves = map.astar(currBehaviour, currDirection);
-			if (moves != null) return moves.poll();	
-		}
-		if (map.itemSeen(Tile.Axe) && !map.holdingItem(Tile.Axe)) {
-			boolean canUseStone = true;
-			currBehaviour = new GetItem(map, inventory, map.getItemPos(Tile.Axe), canUseStone);
-			Queue<Move> moves = map.astar(currBehaviour, currDirection);
-			if (moves != null) return moves.poll();	
-		}
-		return null;
+		int count = 0;
+		if (map.itemSeen(Tile.StepStone)) wantedItems[count++] = Tile.StepStone;
+		if (map.itemSeen(Tile.Key) && !map.holdingItem(Tile.Key)) wantedItems[count++] = Tile.Key;
+		if (map.itemSeen(Tile.Axe) && !map.holdingItem(Tile.Axe)) wantedItems[count++] = Tile.Axe;
+		if (count == 0) return null;
+		// One search finds the nearest reachable item of every wanted type
+		Point itemPos = new Point();
+		PathBuffer moves = map.nearestItem(wantedItems, count, currDirection, itemPos);
+		if (moves == null) return null;
+		boolean canUseStone = true;
+		currBehaviour = new GetItem(map, inventory, itemPos, canUseStone);
+		return Move.of(moves.poll());
 	}
 	
 	/**
@@ -173,79 +255,34 @@ public class Agent {
 		Point nextPoint = map.getUnvisitedPoint();
 		if (nextPoint != null) {
 			currBehaviour = new Explore(map, inventory, nextPoint);
-			exploreQueue = map.astar(currBehaviour, currDirection);
-			if (exploreQueue != null) {
-				m = exploreQueue.poll();
+			PathBuffer moves = map.astar(currBehaviour, currDirection);
+			if (moves != null) {
+				exploreQueue.copyFrom(moves);
+				m = Move.of(exploreQueue.poll());
 				if (m != null && map.isValidMove(m.d, currBehaviour.canUseStone())) return m;
 			} else {
-				exploreQueue = new LinkedList<Move>();
+				exploreQueue.clear();
 			}
 		}
 		return null;
 	}
 	
 	/**
-	 * Create an exploration path in a random direction and attempt to go to it
-	 * @return Valid move to the new exploration path
+	 * Head for the frontier point that reveals the most unexplored tiles for the moves it takes to reach
+	 * @return Valid move towards the frontier point
 	 */
-	private Move exploreRandomDirection() {
+	private Move exploreFrontier() {
 		Move m;
-		Random rand = new Random();
-		Point toExplore = new Point();
-		toExplore.x = 0xFFFFFF;
-		toExplore.y = 0xFFFFFF;
-		int randomInt = rand.nextInt(6); 
-		int maxTiles = 10;
-		int offset = 5;
-		// Choose a direction to explore in
-		switch (randomInt) {
-		// Exploring to some point to right of the map
-		case 0:
-			toExplore.x = map.getExploredHigh().x + rand.nextInt(maxTiles) + offset;
-			toExplore.y = map.getExploredHigh().y;
-			break;
-		// Exploring to some point to left of the map
-		case 1:
-			toExplore.x = map.getExploredHigh().x - rand.nextInt(maxTiles) - offset;
-			toExplore.y = map.getExploredHigh().y;
-			break;
-		// Exploring to some point to top of the map
-		case 2:
-			toExplore.x = map.getExploredHigh().x;
-			toExplore.y = map.getExploredHigh().y + rand.nextInt(maxTiles) + offset;
-			break;
-		// Exploring to some point to bottom of the map
-		case 3:
-			toExplore.x = map.getExploredHigh().x;
-			toExplore.y = map.getExploredHigh().y - rand.nextInt(maxTiles) - offset;
-			break;
-		// Exploring to some point in top right of the map
-		case 4:
-			toExplore.x = map.getExploredHigh().x + rand.nextInt(maxTiles) + offset;
-			toExplore.y = map.getExploredHigh().y + rand.nextInt(maxTiles) + offset;
-			break;
-		// Exploring to some point in the bottom left of the map
-		case 5:
-			toExplore.x = map.getExploredHigh().x - rand.nextInt(maxTiles) - offset;
-			toExplore.y = map.getExploredHigh().y - rand.nextInt(maxTiles) - offset;
-			break;
-		// Exploring to some point within the current boundaries explored
-		default:
-			Point withinBoundary = map.getUnexplored();
-			if (withinBoundary == null) break;
-			toExplore.x = withinBoundary.x;
-			toExplore.y = withinBoundary.y;
-			break;
-		}
-		// Attempt to find a path to the point we want to explore
-		currBehaviour = new Explore(map, inventory, toExplore);
-		exploreQueue = map.astar(currBehaviour, currDirection);
-		if (exploreQueue != null) {
-			m = exploreQueue.poll();
+		Point target = new Point();
+		PathBuffer moves = map.exploreFrontier(currDirection, target);
+		currBehaviour = new Explore(map, inventory, target);
+		if (moves != null) {
+			exploreQueue.copyFrom(moves);
+			m = Move.of(exploreQueue.poll());
 			if (m != null && map.isValidMove(m.d, currBehaviour.canUseStone())) return m;
 		} else {
-			// Reset the exploreQueue since no path was found
-			exploreQueue = new LinkedList<Move>();
+			// Reset the exploreQueue since no frontier point can be reached
+			exploreQueue.clear();
 		}
 		return null;
 	}
@@ -256,6 +293,26 @@ public class Agent {
 	 * @return The action that the agent would like to take
 	 */
 	public char get_action( char view[][] ) {
+		long start = System.nanoTime();
+		char action = chooseAction(view);
+		map.getMetrics().recordTurn(System.nanoTime() - start);
+		return action;
+	}
+	
+	/**
+	 * Counters and latencies of the game played so far
+	 * @return Metrics of this agent's game
+	 */
+	public Metrics getMetrics() {
+		return map.getMetrics();
+	}
+	
+	/**
+	 * Updates the map with the view and decides on the next action
+	 * @param view 5 x 5 that the server provides the agent each turn
+	 * @return The action that the agent would like to take
+	 */
+	private char chooseAction( char view[][] ) {
 		// Initialise the map in the first turn
 		if (!mapInitialised) {
 			map.initialiseMap(view);
@@ -345,15 +402,11 @@ public class Agent {
 
 	public static void main( String[] args )
 	{
-		InputStream in  = null;
-		OutputStream out= null;
-		Socket socket   = null;
+		ViewChannel channel = null;
 		Agent  agent    = new Agent();
 		char   view[][] = new char[5][5];
 		char   action   = 'F';
 		int port;
-		int ch;
-		int i,j;
 
 		if( args.length < 2 ) {
 			System.out.println("Usage: java Agent -p <port>\n");
@@ -363,9 +416,7 @@ public class Agent {
 		port = Integer.parseInt( args[1] );
 
 		try { // open socket to Game Engine
-			socket = new Socket( "localhost", port );
-			in  = socket.getInputStream();
-			out = socket.getOutputStream();
+			channel = ViewChannel.connect( "localhost", port );
 		}
 		catch( IOException e ) {
 			System.out.println("Could not bind to port: "+port);
@@ -374,20 +425,13 @@ public class Agent {
 
 		try { // scan 5-by-5 wintow around current location
 			while( true ) {
-				for( i=0; i < 5; i++ ) {
-					for( j=0; j < 5; j++ ) {
-						if( !(( i == 2 )&&( j == 2 ))) {
-							ch = in.read();
-							if( ch == -1 ) {
-								System.exit(-1);
-							}
-							view[i][j] = (char) ch;
-						}
-					}
+				// Each view arrives as one 24 byte frame
+				if( !channel.readView( view )) {
+					System.exit(-1);
 				}
 				//agent.print_view( view ); // COMMENT THIS OUT BEFORE SUBMISSION
 				action = agent.get_action( view );
-				out.write( action );
+				channel.writeAction( action );
 			}
 		}
 		catch( IOException e ) {
@@ -396,7 +440,7 @@ public class Agent {
 		}
 		finally {
 			try {
-				socket.close();
+				channel.close();
 			}
 			catch( IOException e ) {}
 		}
@@ -0,0 +1,163 @@
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays many networked games from one JVM instead of starting a new java Agent process for every game.
+ * Each worker thread connects to the game engine, plays one game with a fresh Agent and connects again,
+ * so games share no agent state but share the code the JVM has already compiled. With -w the agent first
+ * plays a map in-process until the search code is compiled, so the first move of the first networked game
+ * is not slowed down by the JVM warming up. Workers stop once the engine stops accepting connections or
+ * the number of games given with -g has been played.
+ * Usage: java AgentDaemon -p port [-h host] [-c sessions] [-g games] [-w warmup.in] [-j]
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see SteppingServer
+ */
+public class AgentDaemon {
+	private static final int warmUpGames = 20;
+	private static final int warmUpMaxMoves = 2000;
+
+	private String host;
+	private int port;
+	private int games;
+	private boolean json;
+	private AtomicInteger started;
+	private AtomicInteger finished;
+
+	/**
+	 * Constructor for a daemon that plays against one engine
+	 * @param host			Host the engine is running on
+	 * @param port			Port the engine is listening on
+	 * @param games			Number of games to play, 0 to play until the engine stops accepting connections
+	 * @param json			If the metrics of each game are printed as a JSON line after its result
+	 */
+	public AgentDaemon(String host, int port, int games, boolean json) {
+		this.host = host;
+		this.port = port;
+		this.games = games;
+		this.json = json;
+		started = new AtomicInteger();
+		finished = new AtomicInteger();
+	}
+
+	/**
+	 * Plays a map in-process with fresh agents so the search code is compiled before any networked game
+	 * @param mapName		Path of the map
+	 * @throws IOException	If the map cannot be read
+	 */
+	public static void warmUp(String mapName) throws IOException {
+		Stepping template = new Stepping(mapName);
+		for (int i = 0; i < warmUpGames; i++) {
+			new Stepping(template).play(new Agent(new Random(i)), warmUpMaxMoves);
+		}
+	}
+
+	/**
+	 * Plays games on a number of worker threads until every worker has stopped
+	 * @param sessions		Number of games played at the same time
+	 */
+	public void serve(int sessions) throws InterruptedException {
+		ExecutorService threads = Executors.newFixedThreadPool(sessions);
+		for (int i = 0; i < sessions; i++) {
+			threads.execute(this::work);
+		}
+		threads.shutdown();
+		threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	public int getFinished() {
+		return finished.get();
+	}
+
+	/**
+	 * Plays one game after another on the calling thread, reusing the same view for each of them
+	 */
+	private void work() {
+		char[][] view = new char[5][5];
+		while (true) {
+			int id = started.incrementAndGet();
+			if (games != 0 && id > games) return;
+			try (ViewChannel channel = ViewChannel.connect(host, port)) {
+				play(id, channel, view);
+			} catch (ConnectException e) {
+				// The engine has stopped accepting games
+				return;
+			} catch (IOException e) {
+				System.out.printf("game %d: %s\n", id, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Plays one game with a fresh agent until the engine closes the connection
+	 * @param id			Number of the game in the order games were started
+	 * @param channel		Connection to the engine
+	 * @param view			View to be overwritten by each frame
+	 * @throws IOException	If the connection is lost part way through a frame
+	 */
+	private void play(int id, ViewChannel channel, char[][] view) throws IOException {
+		long start = System.nanoTime();
+		Agent agent = new Agent();
+		while (channel.readView(view)) {
+			channel.writeAction(agent.get_action(view));
+		}
+		finished.incrementAndGet();
+		Metrics metrics = agent.getMetrics();
+		System.out.printf("game %d: %d turns, first turn %.1f us (%.1f ms)\n",
+				id, metrics.getTurns(), metrics.getFirstTurnNanos() / 1e3, (System.nanoTime() - start) / 1e6);
+		if (json) System.out.println(metrics.toJson());
+	}
+
+	public static void main(String[] args) {
+		String host = "localhost";
+		int port = 0;
+		int sessions = 1;
+		int games = 0;
+		boolean json = false;
+		List<String> warmUpMaps = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-p") && i + 1 < args.length) {
+				port = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-h") && i + 1 < args.length) {
+				host = args[++i];
+			} else if (args[i].equals("-c") && i + 1 < args.length) {
+				sessions = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-g") && i + 1 < args.length) {
+				games = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-w") && i + 1 < args.length) {
+				warmUpMaps.add(args[++i]);
+			} else if (args[i].equals("-j")) {
+				json = true;
+			} else {
+				port = 0;
+				break;
+			}
+		}
+		if (port == 0) {
+			System.out.println("Usage: java AgentDaemon -p port [-h host] [-c sessions] [-g games] [-w warmup.in] [-j]");
+			System.exit(-1);
+		}
+
+		try {
+			for (String mapName: warmUpMaps) warmUp(mapName);
+		} catch (IOException e) {
+			System.out.println("Could not read map: " + e.getMessage());
+			System.exit(-1);
+		}
+		AgentDaemon daemon = new AgentDaemon(host, port, games, json);
+		long start = System.nanoTime();
+		try {
+			daemon.serve(sessions);
+		} catch (InterruptedException e) {
+			System.out.println("Interrupted");
+			System.exit(-1);
+		}
+		System.out.printf("Played %d games in %.1f s\n", daemon.getFinished(), (System.nanoTime() - start) / 1e9);
+	}
+}
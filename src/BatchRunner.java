@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays the agent on a list of maps inside one JVM and reports the result of each game.
+ * With -j the agent's metrics for each game are printed as a JSON line after its result.
+ * With -u the agent plans its items and exploration with that many tree search iterations per decision,
+ * and no time limit so the results do not depend on the speed of the machine.
+ * Usage: java BatchRunner [-m maxmoves] [-s seed] [-u iterations] [-j] map1.in map2.in ...
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Stepping#play(Agent, int)
+ */
+public class BatchRunner {
+	private static final int defaultMaxMoves = 10000;
+	private static final long defaultSeed = 1;
+	
+	/**
+	 * Plays a fresh agent on each map in order
+	 * @param mapNames			Paths of the maps to be played
+	 * @param maxMoves			Move limit for each game
+	 * @param seed				Seed of every agent's random generator
+	 * @param planIterations	Tree search iterations for each planning decision, 0 to not plan ahead
+	 * @param metrics			If not null, the metrics of each game are added to it as JSON lines
+	 * @return					Result of each game, in the same order as the maps
+	 * @throws IOException		If a map cannot be read
+	 */
+	public static List<GameResult> run(List<String> mapNames, int maxMoves, long seed, int planIterations,
+			List<String> metrics)
+			throws IOException {
+		List<GameResult> results = new ArrayList<GameResult>();
+		for (String mapName: mapNames) {
+			Stepping game = new Stepping(mapName);
+			Agent agent = new Agent(new Random(seed));
+			if (planIterations > 0) agent.usePlanAhead(planIterations, 0);
+			results.add(game.play(agent, maxMoves).forGame(mapName, seed));
+			if (metrics != null) metrics.add(agent.getMetrics().toJson());
+		}
+		return results;
+	}
+	
+	public static void main(String[] args) {
+		int maxMoves = defaultMaxMoves;
+		long seed = defaultSeed;
+		int planIterations = 0;
+		boolean json = false;
+		List<String> mapNames = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-m") && i + 1 < args.length) {
+				maxMoves = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-s") && i + 1 < args.length) {
+				seed = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-u") && i + 1 < args.length) {
+				planIterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-j")) {
+				json = true;
+			} else {
+				mapNames.add(args[i]);
+			}
+		}
+		if (mapNames.isEmpty()) {
+			System.out.println("Usage: java BatchRunner [-m maxmoves] [-s seed] [-u iterations] [-j] map1.in map2.in ...");
+			System.exit(-1);
+		}
+		
+		List<GameResult> results;
+		List<String> metrics = json ? new ArrayList<String>() : null;
+		try {
+			results = run(mapNames, maxMoves, seed, planIterations, metrics);
+		} catch (IOException e) {
+			System.out.println("Could not read map: " + e.getMessage());
+			System.exit(-1);
+			return;
+		}
+		int won = 0;
+		long totalMoves = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < results.size(); i++) {
+			GameResult r = results.get(i);
+			System.out.println(r);
+			if (json) System.out.println(metrics.get(i));
+			if (r.isWon()) won++;
+			totalMoves += r.getMoves();
+			totalNanos += r.getWallTimeNanos();
+		}
+		System.out.printf("Won %d/%d, %d moves, %.1f ms total\n", won, results.size(), totalMoves, totalNanos / 1e6);
+	}
+}
@@ -0,0 +1,175 @@
+import java.util.Arrays;
+
+/**
+ * Indexed binary min heap of cell indices. Each cell is in the heap at most once and its key
+ * can be changed in place, which keeps the heap no larger than the number of cells on the frontier.
+ * Keys are longs so two ints can be ordered together, e.g. (fCost << 32 | tie break).
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public class CellHeap {
+	private int[] cells;
+	private long[] keys;
+	// Position of each cell in the heap plus one, 0 if the cell is not in the heap
+	private int[] index;
+	private int size;
+
+	/**
+	 * Constructor for the heap
+	 * @param capacity		Number of cells that can be indexed
+	 */
+	public CellHeap(int capacity) {
+		cells = new int[capacity];
+		keys = new long[capacity];
+		index = new int[capacity];
+	}
+
+	/**
+	 * Packs two non negative ints into a key that orders by the first then the second
+	 * @param primary		Compared first
+	 * @param secondary		Compared when the primary values are equal
+	 * @return				Key for the heap
+	 */
+	public static long key(int primary, int secondary) {
+		return ((long) primary << 32) | secondary;
+	}
+
+	/**
+	 * Inserts a cell or changes the key of a cell already in the heap
+	 * @param cell		Cell index
+	 * @param key		New key of the cell
+	 */
+	public void update(int cell, long key) {
+		int i = index[cell] - 1;
+		if (i < 0) {
+			i = size++;
+			cells[i] = cell;
+			keys[i] = key;
+			index[cell] = i + 1;
+			siftUp(i);
+		} else if (key < keys[i]) {
+			keys[i] = key;
+			siftUp(i);
+		} else {
+			keys[i] = key;
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * Removes the cell with the lowest key
+	 * @return		Cell index
+	 */
+	public int poll() {
+		int top = cells[0];
+		removeAt(0);
+		return top;
+	}
+
+	/**
+	 * Removes a cell from the heap if it is in it
+	 * @param cell		Cell index
+	 */
+	public void remove(int cell) {
+		int i = index[cell] - 1;
+		if (i >= 0) removeAt(i);
+	}
+
+	/**
+	 * Cell with the lowest key, the heap must not be empty
+	 * @return		Cell index
+	 */
+	public int peek() {
+		return cells[0];
+	}
+
+	/**
+	 * Lowest key in the heap, the heap must not be empty
+	 * @return		Lowest key
+	 */
+	public long peekKey() {
+		return keys[0];
+	}
+
+	/**
+	 * If a cell is currently in the heap
+	 * @param cell		Cell index
+	 * @return			True if the cell is in the heap
+	 */
+	public boolean contains(int cell) {
+		return index[cell] != 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Empties the heap, costs the number of cells left in it
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			index[cells[i]] = 0;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Grows the heap so it can index at least the given number of cells
+	 * @param capacity		Number of cells that can be indexed
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity <= index.length) return;
+		cells = Arrays.copyOf(cells, capacity);
+		keys = Arrays.copyOf(keys, capacity);
+		index = Arrays.copyOf(index, capacity);
+	}
+
+	private void removeAt(int i) {
+		index[cells[i]] = 0;
+		size--;
+		if (i == size) return;
+		cells[i] = cells[size];
+		keys[i] = keys[size];
+		index[cells[i]] = i + 1;
+		siftDown(i);
+		siftUp(i);
+	}
+
+	private void siftUp(int i) {
+		int cell = cells[i];
+		long key = keys[i];
+		while (i > 0) {
+			int p = (i - 1) >> 1;
+			if (keys[p] <= key) break;
+			cells[i] = cells[p];
+			keys[i] = keys[p];
+			index[cells[i]] = i + 1;
+			i = p;
+		}
+		cells[i] = cell;
+		keys[i] = key;
+		index[cell] = i + 1;
+	}
+
+	private void siftDown(int i) {
+		int cell = cells[i];
+		long key = keys[i];
+		int half = size >> 1;
+		while (i < half) {
+			int c = 2 * i + 1;
+			if (c + 1 < size && keys[c + 1] < keys[c]) c++;
+			if (key <= keys[c]) break;
+			cells[i] = cells[c];
+			keys[i] = keys[c];
+			index[cells[i]] = i + 1;
+			i = c;
+		}
+		cells[i] = cell;
+		keys[i] = key;
+		index[cell] = i + 1;
+	}
+}
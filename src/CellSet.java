@@ -0,0 +1,87 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unordered set of cell indices kept in a dense array, with the position of every member stored by cell.
+ * Adding, removing, checking a cell and picking a random member are all O(1), and the members can be
+ * walked without allocating.
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public class CellSet {
+	private int[] cells;
+	private int size;
+	// Position + 1 of each cell in cells, 0 if the cell is not in the set
+	private int[] position;
+
+	/**
+	 * Constructor for an empty set
+	 */
+	public CellSet() {
+		cells = new int[64];
+		position = new int[256];
+	}
+
+	/**
+	 * Adds a cell to the set
+	 * @param cell		Cell index
+	 * @return			False if the cell was already in the set
+	 */
+	public boolean add(int cell) {
+		if (cell >= position.length) position = Arrays.copyOf(position, Math.max(cell + 1, position.length * 2));
+		if (position[cell] != 0) return false;
+		if (size == cells.length) cells = Arrays.copyOf(cells, size * 2);
+		cells[size++] = cell;
+		position[cell] = size;
+		return true;
+	}
+
+	/**
+	 * Removes a cell from the set by moving the last member into its place
+	 * @param cell		Cell index
+	 * @return			False if the cell was not in the set
+	 */
+	public boolean remove(int cell) {
+		if (!contains(cell)) return false;
+		int i = position[cell] - 1;
+		int last = cells[--size];
+		cells[i] = last;
+		position[last] = i + 1;
+		position[cell] = 0;
+		return true;
+	}
+
+	/**
+	 * If a cell is in the set
+	 * @param cell		Cell index
+	 * @return			True if the cell is in the set
+	 */
+	public boolean contains(int cell) {
+		return cell < position.length && position[cell] != 0;
+	}
+
+	/**
+	 * Member at a position, members move when others are removed
+	 * @param i			Position below size
+	 * @return			Cell index
+	 */
+	public int get(int i) {
+		return cells[i];
+	}
+
+	/**
+	 * Picks a member uniformly at random, the set must not be empty
+	 * @param rand		Source of the random choice
+	 * @return			Cell index
+	 */
+	public int sample(Random rand) {
+		return cells[rand.nextInt(size)];
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,58 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Stack of cell indices paired with a bitmap of the cells currently on it, so pushing, popping and
+ * checking if a cell is queued are all O(1)
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public class CellStack {
+	private int[] cells;
+	private int size;
+	private BitSet queued;
+
+	/**
+	 * Constructor for an empty stack
+	 */
+	public CellStack() {
+		cells = new int[64];
+		queued = new BitSet();
+	}
+
+	/**
+	 * Pushes a cell onto the stack
+	 * @param cell		Cell index
+	 */
+	public void push(int cell) {
+		if (size == cells.length) cells = Arrays.copyOf(cells, size * 2);
+		cells[size++] = cell;
+		queued.set(cell);
+	}
+
+	/**
+	 * Pops the most recently pushed cell, the stack must not be empty
+	 * @return		Cell index
+	 */
+	public int pop() {
+		int cell = cells[--size];
+		queued.clear(cell);
+		return cell;
+	}
+
+	/**
+	 * If a cell is currently on the stack
+	 * @param cell		Cell index
+	 * @return			True if the cell is on the stack
+	 */
+	public boolean contains(int cell) {
+		return queued.get(cell);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+}
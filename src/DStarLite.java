@@ -0,0 +1,302 @@
+import java.awt.Point;
+import java.util.Arrays;
+
+/**
+ * Incremental planner (D* Lite) used to reach the gold and get back home. The search runs backwards
+ * from the goal and keeps its g/rhs values between turns, so when the agent moves and the map reveals a
+ * few new tiles only the cells whose cost to the goal is affected are expanded again.
+ *
+ * The planner works on a fixed cost graph, so it never plans to use stepping stones: water is treated as
+ * impassable and callers fall back to a full A* search when no dry path exists. Picking up an axe or key,
+ * or changing the goal, restarts the planner from scratch.
+ *
+ * A planner made for the whole map runs without a heuristic until every cell is consistent, which makes
+ * it a distance field rooted at the goal: the best move from any cell can then be read in constant time.
+ * Revealed tiles are repaired the same way as for a single path. The field only covers paths without
+ * stepping stones, so it is not a safe heuristic for searches that may use them.
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Graph#replan(Behaviour, Direction)
+ */
+public class DStarLite {
+	private static final int infinity = Integer.MAX_VALUE / 4;
+	private static final long unreachableKey = CellHeap.key(Integer.MAX_VALUE, Integer.MAX_VALUE);
+	// Neighbours are always visited in this order, the same order as the A* expansion
+	private static final Direction[] moves = { Direction.NORTH, Direction.SOUTH, Direction.WEST, Direction.EAST };
+
+	private WorldMap world;
+	private boolean wholeMap;
+	// Chunks of the world the arrays cover
+	private int chunks;
+
+	private int[] g;
+	private int[] rhs;
+	private CellHeap open;
+	// Cells whose tile changed since the last plan
+	private CellStack changed;
+
+	private boolean initialised;
+	private int goalCell;
+	private int startCell;
+	private int lastStart;
+	private int km;
+	private boolean hasAxe;
+	private boolean hasKey;
+	private int nodesExpanded;
+
+	/**
+	 * Constructor for the planner
+	 * @param world			Map of the graph, it is read directly so it must be the live map
+	 */
+	public DStarLite(WorldMap world) {
+		this(world, false);
+	}
+
+	/**
+	 * Constructor for a planner that can keep the cost to the goal of every cell up to date
+	 * @param world			Map of the graph, it is read directly so it must be the live map
+	 * @param wholeMap		If every reachable cell is planned instead of only the cells needed for the start
+	 */
+	public DStarLite(WorldMap world, boolean wholeMap) {
+		this.world = world;
+		this.wholeMap = wholeMap;
+		int cells = Math.max(world.getCapacity(), WorldMap.chunkCells);
+		g = new int[cells];
+		rhs = new int[cells];
+		open = new CellHeap(cells);
+		changed = new CellStack();
+	}
+
+	/**
+	 * Records that the tile of a cell changed so the planner can repair its values on the next plan
+	 * @param cell		Cell index of the tile
+	 */
+	public void tileChanged(int cell) {
+		if (!initialised) return;
+		if (!changed.contains(cell)) changed.push(cell);
+	}
+
+	/**
+	 * Brings the planner up to date with the map and finds the cheapest path from the start to the goal
+	 * @param start			Location of the player
+	 * @param goal			Location of the goal
+	 * @param inventory		Packed inventory of the player
+	 * @return				True if a path that uses no stepping stones exists
+	 */
+	public boolean plan(Point start, Point goal, int inventory) {
+		int s = world.cellAt(start.x, start.y);
+		int goalIndex = world.cellAt(goal.x, goal.y);
+		nodesExpanded = 0;
+		if (s < 0 || goalIndex < 0) return false;
+		grow();
+		startCell = s;
+		if (!initialised || goalIndex != goalCell
+				|| hasAxe != Inventory.hasAxe(inventory) || hasKey != Inventory.hasKey(inventory)) {
+			reset(goalIndex, inventory);
+		} else if (!changed.isEmpty()) {
+			// Keys already in the queue were computed from the last start, offset them instead of rekeying
+			km += heuristic(lastStart, s);
+			lastStart = s;
+			while (!changed.isEmpty()) {
+				int cell = changed.pop();
+				// Entering the cell costs something different now, which only affects its neighbours
+				for (int i = 0; i < moves.length; i++) {
+					int n = neighbour(cell, i);
+					if (n >= 0) updateVertex(n);
+				}
+			}
+		}
+		computeShortestPath();
+		return g[startCell] < infinity;
+	}
+
+	/**
+	 * Writes the path found by the last successful plan by greedily following the cheapest neighbour
+	 * @param path		Path to be overwritten, the start cell is not included
+	 */
+	public void getPath(PathBuffer path) {
+		path.reset(0);
+		int cell = startCell;
+		// A consistent search can never need more steps than there are cells
+		for (int steps = 0; cell != goalCell && steps < g.length; steps++) {
+			int i = bestMove(cell);
+			if (i < 0) break;
+			path.add(moves[i]);
+			cell = neighbour(cell, i);
+		}
+	}
+
+	/**
+	 * Best first move from a cell towards the goal as of the last plan
+	 * @param from		Location of the cell
+	 * @return			Direction to move in or null if the goal cannot be reached or is already reached
+	 */
+	public Direction nextMove(Point from) {
+		if (!initialised) return null;
+		int cell = world.cellAt(from.x, from.y);
+		if (cell < 0 || cell >= g.length || cell == goalCell) return null;
+		int i = bestMove(cell);
+		return (i < 0) ? null : moves[i];
+	}
+
+	/**
+	 * Number of nodes expanded by the last plan, small when only a few tiles changed
+	 * @return		Nodes expanded
+	 */
+	public int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * Throws away all values and starts a new search from the goal
+	 * @param goalIndex		Cell of the goal
+	 * @param inventory		Packed inventory the costs are based on
+	 */
+	private void reset(int goalIndex, int inventory) {
+		Arrays.fill(g, infinity);
+		Arrays.fill(rhs, infinity);
+		open.clear();
+		while (!changed.isEmpty()) changed.pop();
+		goalCell = goalIndex;
+		lastStart = startCell;
+		km = 0;
+		hasAxe = Inventory.hasAxe(inventory);
+		hasKey = Inventory.hasKey(inventory);
+		rhs[goalCell] = 0;
+		open.update(goalCell, key(goalCell));
+		initialised = true;
+	}
+
+	/**
+	 * Covers the chunks the map allocated since the last plan. Their cells start with no cost to the goal,
+	 * and once planning has started they are treated as changed tiles so the cells next to them are repaired.
+	 */
+	private void grow() {
+		int capacity = world.getCapacity();
+		if (capacity > g.length) {
+			int cells = Math.max(capacity, g.length * 2);
+			int old = g.length;
+			g = Arrays.copyOf(g, cells);
+			rhs = Arrays.copyOf(rhs, cells);
+			Arrays.fill(g, old, cells, infinity);
+			Arrays.fill(rhs, old, cells, infinity);
+			open.ensureCapacity(cells);
+		}
+		int allocated = world.getChunks();
+		if (initialised) {
+			for (int cell = chunks * WorldMap.chunkCells; cell < allocated * WorldMap.chunkCells; cell++) {
+				tileChanged(cell);
+			}
+		}
+		chunks = allocated;
+	}
+
+	private void computeShortestPath() {
+		while (!open.isEmpty()
+				&& (wholeMap || open.peekKey() < key(startCell) || rhs[startCell] != g[startCell])) {
+			int u = open.peek();
+			long oldKey = open.peekKey();
+			long newKey = key(u);
+			if (oldKey < newKey) {
+				open.update(u, newKey);
+				continue;
+			}
+			nodesExpanded++;
+			if (g[u] > rhs[u]) {
+				// Cost to goal went down or the cell was reached for the first time
+				g[u] = rhs[u];
+				open.remove(u);
+			} else {
+				// Cost to goal went up, recalculate the cell along with its neighbours
+				g[u] = infinity;
+				updateVertex(u);
+			}
+			for (int i = 0; i < moves.length; i++) {
+				int n = neighbour(u, i);
+				if (n >= 0) updateVertex(n);
+			}
+		}
+	}
+
+	private void updateVertex(int u) {
+		if (u != goalCell) {
+			int best = infinity;
+			for (int i = 0; i < moves.length; i++) {
+				int n = neighbour(u, i);
+				if (n >= 0) best = Math.min(best, add(cost(n), g[n]));
+			}
+			rhs[u] = best;
+		}
+		if (g[u] != rhs[u]) {
+			open.update(u, key(u));
+		} else {
+			open.remove(u);
+		}
+	}
+
+	private long key(int cell) {
+		int m = Math.min(g[cell], rhs[cell]);
+		if (m >= infinity) return unreachableKey;
+		return CellHeap.key(m + heuristic(startCell, cell) + km, m);
+	}
+
+	/**
+	 * Cost of moving onto a cell, matching the costs used by A* for paths without stones
+	 * @param cell		Cell index
+	 * @return			Cost of entering the cell or infinity if it cannot be entered
+	 */
+	private int cost(int cell) {
+		int tile = world.flags(cell);
+		if ((tile & Tile.obstacleFlag) == 0) return 1;
+		if ((tile & (Tile.wallFlag | Tile.needsStoneFlag)) != 0) return infinity;
+		if ((tile & Tile.needsKeyFlag) != 0) return hasKey ? 2 : infinity;
+		if ((tile & Tile.needsAxeFlag) != 0) return hasAxe ? 2 : infinity;
+		// Unexplored
+		return 3;
+	}
+
+	/**
+	 * Neighbour to move to from a cell that has the lowest cost to the goal
+	 * @param cell		Cell index
+	 * @return			Index into moves of the best neighbour or -1 if no neighbour can reach the goal
+	 */
+	private int bestMove(int cell) {
+		int best = -1;
+		int bestCost = infinity;
+		for (int i = 0; i < moves.length; i++) {
+			int n = neighbour(cell, i);
+			if (n < 0) continue;
+			int cost = add(cost(n), g[n]);
+			if (cost < bestCost) {
+				best = i;
+				bestCost = cost;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Manhattan distance between two cells, a whole map planner has no start to aim for so it uses none
+	 */
+	private int heuristic(int a, int b) {
+		if (wholeMap) return 0;
+		return Math.abs(world.cellX(a) - world.cellX(b)) + Math.abs(world.cellY(a) - world.cellY(b));
+	}
+
+	/**
+	 * Neighbour of a cell in one of the four directions
+	 * @param cell		Cell index
+	 * @param i			Index into moves
+	 * @return			Cell index of the neighbour or -1 if it is outside the allocated chunks
+	 */
+	private int neighbour(int cell, int i) {
+		// moves is in the same order as the directions of the world map
+		return world.neighbour(cell, i);
+	}
+
+	/**
+	 * Adds two costs without overflowing past infinity
+	 */
+	private static int add(int a, int b) {
+		return (a >= infinity || b >= infinity) ? infinity : a + b;
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Outcome of one game played in-process by the Stepping engine
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Stepping#play(Agent, int)
+ */
+public class GameResult {
+	private String mapName;
+	private long seed;
+	private boolean won;
+	private boolean lost;
+	private int moves;
+	private long wallTimeNanos;
+	
+	/**
+	 * Constructor for GameResult
+	 * @param won				If the agent returned home with the gold
+	 * @param lost				If the agent drowned or walked off the map
+	 * @param moves				Number of moves played, the move limit if neither won nor lost
+	 * @param wallTimeNanos		Time taken to play the game
+	 */
+	public GameResult(boolean won, boolean lost, int moves, long wallTimeNanos) {
+		this.mapName = "";
+		this.won = won;
+		this.lost = lost;
+		this.moves = moves;
+		this.wallTimeNanos = wallTimeNanos;
+	}
+	
+	/**
+	 * Returns a copy of this result labelled with the map and agent seed it was played with
+	 * @param mapName		Name of the map
+	 * @param seed			Seed of the agent's random generator
+	 * @return				Labelled result
+	 */
+	public GameResult forGame(String mapName, long seed) {
+		GameResult r = new GameResult(won, lost, moves, wallTimeNanos);
+		r.mapName = mapName;
+		r.seed = seed;
+		return r;
+	}
+	
+	public String getMapName() {
+		return mapName;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	public boolean isWon() {
+		return won;
+	}
+	
+	public boolean isLost() {
+		return lost;
+	}
+	
+	public int getMoves() {
+		return moves;
+	}
+	
+	public long getWallTimeNanos() {
+		return wallTimeNanos;
+	}
+	
+	/**
+	 * Outcome in the same words the Stepping engine prints at the end of a game
+	 * @return		Won, Lost or Timeout
+	 */
+	public String getOutcome() {
+		if (won) return "Won";
+		if (lost) return "Lost";
+		return "Timeout";
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s (seed %d): %s in %d moves (%.1f ms)", 
+				mapName, seed, getOutcome(), moves, wallTimeNanos / 1e6);
+	}
+}
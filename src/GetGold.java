@@ -34,17 +34,12 @@ public class GetGold implements Behaviour{
 	@Override
 	public Point getGoal() {
 		if (inventory.contains(Tile.Gold)) return startPoint;
-		for (Item i: map.itemsOnMap()) {
-			if (i.getItemName() == Tile.Gold)
-				return i.getPos();
-		}
-		
-		return null;
+		return map.getItemPos(Tile.Gold);
 	}
 	
 	/**
-	 * Uses Manhattan distance between the current position and the goal point
-	 * to calculate a heuristic
+	 * Uses Manhattan distance between the current position and the goal point to calculate a heuristic.
+	 * The distance field home is not used, it ignores paths over stepping stones so it can overestimate.
 	 * @param goal					Destination point
 	 * @param currPosition			Starting point
 	 * @return						Heuristic value to goal
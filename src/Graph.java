@@ -7,36 +7,73 @@ import java.util.*;
  * @author Saffat Shams Akanda, Richard Luong
  */
 public class Graph {
-	private Tile[][] map;
-	private ArrayList<Item> itemsOnMap;
+	// Tiles the player can see on each side of its own tile
+	private static final int viewRadius = 2;
+
+	private WorldMap map;
+	private ItemIndex items;
 	private ArrayList<Tile> playerInv;
+	private int inventory;
 	private ArrayList<Tile> itemsRequired;
 	private Point currPos;
 	private Point exploredLowBound;
 	private Point exploredHighBound;
-	private Stack<Point> exploreStack;
-	private HashMap<String, Point> visitedPoints;
+	private CellStack exploreStack;
+	// Unexplored cells next to a known tile the agent can stand on
+	private CellSet frontier;
+	private BitSet visitedPoints;
+	private AStarSearch search;
+	private MonteCarloPlanner planner;
+	private int[] plannedItems;
+	// Map, inventory and items of the last decision of the planner that found nothing to go to
+	private int[] failedItems;
+	private int failedItemCount;
+	private int failedInventory;
+	private int failedChanges;
+	// Tiles changed so far, so a failed plan is only tried again once the map is different
+	private int tileChanges;
+	private PathBuffer path;
+	private DStarLite goldPlanner;
+	// Cost to the start position from every cell, only built once the way home is first needed
+	private DStarLite homeField;
+	private Point homePos;
+	private Random rand;
+	private Metrics metrics;
 	
 	public Graph() {
-		map = new Tile[161][161];
-		itemsOnMap = new ArrayList<Item>();
+		this(new Random());
+	}
+	
+	/**
+	 * Constructor for a graph whose random choices come from the given generator
+	 * @param rand		Source of random choices
+	 */
+	public Graph(Random rand) {
+		this.rand = rand;
+		this.metrics = new Metrics();
+		map = new WorldMap();
+		items = new ItemIndex(map);
 		playerInv = new ArrayList<Tile>();
+		inventory = Inventory.empty;
 		itemsRequired = new ArrayList<Tile>();
 		currPos = new Point(80, 80);
 		// Used to map which areas have been explored
 		exploredLowBound = new Point(80, 80);
 		exploredHighBound = new Point(80, 80);
 		// All tiles are unexplored at the start
-		for (int y = 0; y < 160; y++) {
-			for (int x = 0; x < 160; x++) {
-				map[y][x] = Tile.Unexplored;
-			}
-		}
 		// Set the starting position so we can backtrack later to it
-		map[currPos.y][currPos.x] = Tile.StartPosition;
-		exploreStack = new Stack<Point>();
-		visitedPoints = new HashMap<String, Point>();
-		
+		map.set(currPos.x, currPos.y, Tile.StartPosition);
+		exploreStack = new CellStack();
+		frontier = new CellSet();
+		visitedPoints = new BitSet();
+		search = new AStarSearch(map);
+		plannedItems = new int[8];
+		failedItems = new int[8];
+		failedChanges = -1;
+		path = new PathBuffer();
+		goldPlanner = new DStarLite(map);
+		homeField = new DStarLite(map, true);
+		homePos = new Point(currPos);
 	}
 	
 	/**
@@ -54,12 +91,8 @@ public class Graph {
 					mapPos.x += 1;
 					continue;
 				}
-				// Map out each tile
-				map[mapPos.y][mapPos.x] = Tile.getTile(initialView[y][x]);
-				// Store location of items 
-				if (Tile.isItem(map[mapPos.y][mapPos.x])) {
-					itemsOnMap.add(new Item(map[mapPos.y][mapPos.x], 1, new Point(mapPos.x, mapPos.y)));
-				}
+				// Map out each tile, setTile also stores the location of items
+				setTile(mapPos.x, mapPos.y, Tile.getTile(initialView[y][x]));
 				mapPos.x += 1;
 			}
 			mapPos.y += 1;
@@ -79,12 +112,14 @@ public class Graph {
 	public void displayMap() {
 		for (int y = exploredHighBound.y; y >= exploredLowBound.y; y--) {
 			System.out.print("|");
+			int cell = map.cellAt(exploredLowBound.x, y);
 			for (int x = exploredLowBound.x; x <= exploredHighBound.x; x++) {
 				if (x == currPos.x && y == currPos.y) {
 					System.out.print("P");
-					continue;
+				} else {
+					System.out.print((cell < 0) ? Tile.Unexplored.charVal : map.getCell(cell).charVal);
 				}
-				System.out.print(map[y][x].charVal);
+				cell = nextInRow(cell, x, y);
 			}
 			System.out.print("|\n");
 		}
@@ -100,39 +135,56 @@ public class Graph {
 	public boolean isValidMove(Direction currDirection, boolean canUseStone) {
 		switch (currDirection) {
 		case NORTH:
-			return canPassTile(new Point(currPos.x, currPos.y + 1), canUseStone, playerInv, false, false);
+			return canPassTile(currPos.x, currPos.y + 1, canUseStone, inventory, false, false);
 		case SOUTH:
-			return canPassTile(new Point(currPos.x, currPos.y - 1), canUseStone, playerInv, false, false);
+			return canPassTile(currPos.x, currPos.y - 1, canUseStone, inventory, false, false);
 		case EAST:
-			return canPassTile(new Point(currPos.x + 1, currPos.y), canUseStone, playerInv, false, false);
+			return canPassTile(currPos.x + 1, currPos.y, canUseStone, inventory, false, false);
 		case WEST:
-			return canPassTile(new Point(currPos.x - 1, currPos.y), canUseStone, playerInv, false, false);
+			return canPassTile(currPos.x - 1, currPos.y, canUseStone, inventory, false, false);
 		}
 		//System.out.println("Invalid move detected");
 		return false;
 	}
 	
 	/**
-	 * Get a point within the current boundaries that the agent has gone to which has been unexplored
-	 * @return 		A point which has not been explored
+	 * Get an unexplored point on the edge of the area explored so far, next to a tile the agent can stand on
+	 * @return 		A point which has not been explored, or null if there is none
 	 */
 	public Point getUnexplored() {
-		ArrayList<Point> unexploredList = new ArrayList<Point>();
-		// Scan the map the agent knows of so far for unexplored points
-		for (int y = exploredHighBound.y; y >= exploredLowBound.y; y--) {
-			for (int x = exploredLowBound.x; x <= exploredHighBound.x; x++) {
-				// If a point hasn't been explored, add the point to the unexplored list
-				if (map[y][x] == Tile.Unexplored) {
-					Point unexploredPoint = new Point(x, y);
-					unexploredList.add(unexploredPoint);
-				}
+		// Randomly select one of the frontier points and tell the agent to explore up to that point
+		if (frontier.isEmpty()) return null; 
+		int cell = frontier.sample(rand);
+		return new Point(map.cellX(cell), map.cellY(cell));
+	}
+	
+	/**
+	 * Gets the unexplored point on the edge of the area explored so far that is closest to a location
+	 * by Manhattan distance. The frontier is walked in place, so nothing is allocated except the result.
+	 * @param from		Location to measure from
+	 * @return			Closest frontier point, or null if there is none
+	 */
+	public Point nearestFrontier(Point from) {
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < frontier.size(); i++) {
+			int cell = frontier.get(i);
+			int distance = Math.abs(map.cellX(cell) - from.x) + Math.abs(map.cellY(cell) - from.y);
+			if (distance < bestDistance) {
+				best = cell;
+				bestDistance = distance;
 			}
 		}
-		// Randomly select one of the unexplored points and tell the agent to explore up to that point
-		Random rand = new Random();
-		if (unexploredList.isEmpty()) return null; 
-		int randomIndex = rand.nextInt(unexploredList.size()); 
-		return unexploredList.get(randomIndex);
+		if (best < 0) return null;
+		return new Point(map.cellX(best), map.cellY(best));
+	}
+	
+	/**
+	 * Number of unexplored points on the edge of the area explored so far
+	 * @return		Size of the frontier
+	 */
+	public int frontierSize() {
+		return frontier.size();
 	}
 	
 	/**
@@ -163,20 +215,12 @@ public class Graph {
 			int tempX = 0;
 			if (currDirection == Direction.NORTH) {
 				for (int x = currPos.x - 2; x <= currPos.x + 2; x++) {
-					map[tempBoundary][x] = Tile.getTile(topTiles[tempX]);
-					// Store location of items 
-					if (Tile.isItem(map[tempBoundary][x])) {
-						itemsOnMap.add(new Item(map[tempBoundary][x], 1, new Point(x, tempBoundary)));
-					}
+					setTile(x, tempBoundary, Tile.getTile(topTiles[tempX]));
 					tempX += 1;
 				}
 			} else {
 				for (int x = currPos.x + 2; x >= currPos.x - 2; x--) {
-					map[tempBoundary][x] = Tile.getTile(topTiles[tempX]);
-					// Store location of items 
-					if (Tile.isItem(map[tempBoundary][x])) {
-						itemsOnMap.add(new Item(map[tempBoundary][x], 1, new Point(x, tempBoundary)));
-					}
+					setTile(x, tempBoundary, Tile.getTile(topTiles[tempX]));
 					tempX += 1;
 				}
 			}
@@ -190,20 +234,12 @@ public class Graph {
 			int tempY = 0;
 			if (currDirection == Direction.EAST) {
 				for (int y = currPos.y + 2; y >= currPos.y - 2; y--) {
-					map[y][tempBoundary] = Tile.getTile(topTiles[tempY]);
-					// Store location of items 
-					if (Tile.isItem(map[y][tempBoundary])) {
-						itemsOnMap.add(new Item(map[y][tempBoundary], 1, new Point(tempBoundary, y)));
-					}
+					setTile(tempBoundary, y, Tile.getTile(topTiles[tempY]));
 					tempY += 1;
 				}
 			} else {
 				for (int y = currPos.y - 2; y <= currPos.y + 2; y++) {
-					map[y][tempBoundary] = Tile.getTile(topTiles[tempY]);
-					// Store location of items 
-					if (Tile.isItem(map[y][tempBoundary])) {
-						itemsOnMap.add(new Item(map[y][tempBoundary], 1, new Point(tempBoundary, y)));
-					}
+					setTile(tempBoundary, y, Tile.getTile(topTiles[tempY]));
 					tempY += 1;
 				}
 			}
@@ -215,7 +251,7 @@ public class Graph {
 			}
 		}
 		// Account for the case where the start position gets overwritten
-		map[80][80] = Tile.StartPosition;
+		setTile(80, 80, Tile.StartPosition);
 		// Update the position of the player
 		switch (currDirection) {
 		case NORTH:
@@ -232,25 +268,26 @@ public class Graph {
 			break;	
 		}		
 		// Remove the item from the map if the player has picked it up
-		if (Tile.isItem(map[currPos.y][currPos.x])) {
-			playerInv.add(map[currPos.y][currPos.x]);
-			map[currPos.y][currPos.x] = Tile.Empty;
-			removeItemOnMap(new Point(currPos.x, currPos.y));
+		Tile here = map.get(currPos.x, currPos.y);
+		if (Tile.isItem(here)) {
+			playerInv.add(here);
+			inventory = Inventory.add(inventory, here);
+			setTile(currPos.x, currPos.y, Tile.Empty);
 		} 
 		// Account for case where stone is placed on water
-		if (map[currPos.y][currPos.x] == Tile.Water) {
-			map[currPos.y][currPos.x] = Tile.UsedStepStone;
+		if (here == Tile.Water) {
+			setTile(currPos.x, currPos.y, Tile.UsedStepStone);
 			playerInv.remove(Tile.StepStone);
+			inventory = Inventory.useStone(inventory);
 		}
 		// Update map if door unlocked or tree is cut down
-		if (map[currPos.y][currPos.x] == Tile.Door || map[currPos.y][currPos.x] == Tile.Tree) {
-			map[currPos.y][currPos.x] = Tile.Empty;
+		if (here == Tile.Door || here == Tile.Tree) {
+			setTile(currPos.x, currPos.y, Tile.Empty);
 		}
 		// Update points that haven't been visited yet
 		floodFill();
 		// Add the current point to the visited set
-		String key = String.valueOf(currPos.x).concat(String.valueOf(currPos.y));
-		visitedPoints.put(key, currPos);
+		visitedPoints.set(map.cellAt(currPos.x, currPos.y));
 	}
 	
 	/**
@@ -258,18 +295,7 @@ public class Graph {
 	 * @param pos		Position of item to be removed
 	 */
 	public void removeItemOnMap(Point pos) {
-		Item toRemove = null;
-		for (Item currItem: itemsOnMap) {
-			if (currItem.getPos().x == pos.x && currItem.getPos().y == pos.y) {
-				toRemove = currItem;
-				break;
-			}
-		}
-		// Remove the item from the map and add it to the player's inventory
-		if (toRemove != null) {
-			//System.out.println("Item " + toRemove.getItemName().charVal + " removed from map");
-			itemsOnMap.remove(toRemove);
-		}
+		items.remove(pos.x, pos.y);
 	}
 	
 	/**
@@ -288,14 +314,6 @@ public class Graph {
 		return playerInv;
 	}
 	
-	/**
-	 * Gets a list of the items currently seen on the map
-	 * @return		List of items seen so far
-	 */
-	public ArrayList<Item> itemsOnMap() {
-		return itemsOnMap;
-	}
-	
 	/**
 	 * Lowest locations on the map explored
 	 * @return		Lowest X/Y locations on the map explored
@@ -318,10 +336,7 @@ public class Graph {
 	 * @return			Boolean indicating if the item is on the map
 	 */
 	public boolean itemSeen(Tile item) {
-		for (Item currItem: itemsOnMap) {
-			if (currItem.getItemName().equals(item)) return true;
-		}
-		return false;
+		return items.contains(item);
 	}
 	
 	/**
@@ -330,7 +345,7 @@ public class Graph {
 	 * @return				True if the item is in the inventory
 	 */
 	public boolean holdingItem(Tile item) {
-		return (playerInv.contains(item)) ? true : false;
+		return Inventory.has(inventory, item);
 	}
 	
 	
@@ -341,23 +356,25 @@ public class Graph {
 	 * @return Popped point from the exploreStack
 	 */
 	public Point getUnvisitedPoint() {
-		//System.out.println("Queue size: " + exploreStack.size());
-		if (exploreStack.size() == 0) return null; 
-		return exploreStack.pop();
+		if (exploreStack.isEmpty()) return null; 
+		int cell = exploreStack.pop();
+		return new Point(map.cellX(cell), map.cellY(cell));
 	}
 	
 	/**
 	 * Determines if a point has already been visited by the agent or is currently in the exploreStack
-	 * @param currPos Current position of the player
+	 * @param x		X coordinate of the point
+	 * @param y		Y coordinate of the point
 	 * @return if the point has been visited or is in the explore Stack
 	 */
-	public boolean pointVisited(Point currPos) {
-		String key = String.valueOf(currPos.x).concat(String.valueOf(currPos.y));
-		if (visitedPoints.containsKey(key)) return true;
-		for (Point currPoint: exploreStack) {
-			if (currPoint.x == currPos.x && currPoint.y == currPos.y) return true;
-		}		
-		return false;
+	public boolean pointVisited(int x, int y) {
+		int cell = map.cellAt(x, y);
+		if (cell < 0) return false;
+		return cellVisited(cell);
+	}
+	
+	private boolean cellVisited(int cell) {
+		return visitedPoints.get(cell) || exploreStack.contains(cell);
 	}
 	
 	/**
@@ -367,55 +384,44 @@ public class Graph {
 	 * dense in the number of obstacles.
 	 */
 	private void floodFill() {
-		if (!pointVisited(currPos)) {
+		int cell = map.cellAt(currPos.x, currPos.y);
+		if (!cellVisited(cell)) {
 			// Left Tile
-			if (!Tile.isObstacle(map[currPos.y][currPos.x-1])) {
-				if (!pointVisited(new Point(currPos.x-1, currPos.y))) 
-					exploreStack.push(new Point(currPos.x-1, currPos.y));
-			}
+			pushUnvisited(map.neighbour(cell, WorldMap.west));
 			// Right Tile
-			if (!Tile.isObstacle(map[currPos.y][currPos.x+1])) {
-				if (!pointVisited(new Point(currPos.x+1, currPos.y))) 
-					exploreStack.push(new Point(currPos.x+1, currPos.y));
-			}
+			pushUnvisited(map.neighbour(cell, WorldMap.east));
 			// Top Tile
-			if (!Tile.isObstacle(map[currPos.y+1][currPos.x])) {
-				if (!pointVisited(new Point(currPos.x, currPos.y+1))) 
-					exploreStack.push(new Point(currPos.x, currPos.y+1));
-			}
-			// Right Tile
-			if (!Tile.isObstacle(map[currPos.y-1][currPos.x])) {
-				if (!pointVisited(new Point(currPos.x, currPos.y-1))) 
-					exploreStack.push(new Point(currPos.x, currPos.y-1));
-			}
+			pushUnvisited(map.neighbour(cell, WorldMap.north));
+			// Bottom Tile
+			pushUnvisited(map.neighbour(cell, WorldMap.south));
 		}
 	}
 	
+	/**
+	 * Adds a cell next to the player to the exploreStack if it is not an obstacle and has not been visited
+	 * @param cell		Cell index, -1 if it is outside the allocated chunks
+	 */
+	private void pushUnvisited(int cell) {
+		if (cell < 0 || (map.flags(cell) & Tile.obstacleFlag) != 0 || cellVisited(cell)) return;
+		exploreStack.push(cell);
+	}
+	
 	// End of code for flood fill
 	
 	/**
 	 * Given the starting direction and a behavior which determines the goal and heuristic, 
-	 * this will return a queue of moves to the goal or null if none is present.
+	 * this will return the moves to the goal or null if none is present.
+	 * The returned path is reused by the next search so callers that keep it must copy it.
 	 * @param currBehaviour					The behavior of the agent, dictates the goal and heuristic
 	 * @param currDirection					The direction the player is currently facing
-	 * @return								A Queue of Move to the goal or null if no path available
+	 * @return								Path to the goal or null if no path available
 	 * @see Behaviour#returnHeuristic()
 	 * @see Behaviour#getGoal()
 	 */
-	public Queue<Move> astar(Behaviour currBehaviour, Direction currDirection) {
+	public PathBuffer astar(Behaviour currBehaviour, Direction currDirection) {
 		Point goal = currBehaviour.getGoal();
-		int iterations = 0;
-		Point currentNode;
-		Point tempPoint;
-		ArrayList<Tile> invClone = deepClone(playerInv);
-		State currState = new State(null, currDirection, this.currPos, currBehaviour, this, invClone, goal, false);
-		PriorityQueue<State> pq = new PriorityQueue<State>();
-		ArrayList<Point> visited = new ArrayList<Point>();
-		boolean canUseStone = currBehaviour.canUseStone();
-		pq.add(currState);
-		// Check that the point to reach is not out of bounds
-		if (goal.x >= 160 || goal.x < 0) return null;
-		if (goal.y >= 160 || goal.y < 0) return null;
+		// Check that the point to reach is in the part of the map that can be searched
+		if (map.cellAt(goal.x, goal.y) < 0) return null;
 		
 		// Used to identify if a behaviour is the GetGold behaviour
 		// If it is GetGold, then the search cannot freely pass unexplored tiles
@@ -423,103 +429,206 @@ public class Graph {
 		// as empty tiles which could lead to agent to not get the gold if that tile is something
 		// it cannot bypass such as water
 		boolean getGold = false;
-		//System.out.printf("Goal at (%d, %d)\n", goal.x, goal.y);
-		if (map[goal.y][goal.x] == Tile.Gold || Tile.isItem(map[goal.y][goal.x])) getGold = true;
-		
-		while (true) {
-			if (pq.size() == 0) {
-				iterations = 5000;
-				break;
-			}
-			currState = pq.poll();
-			currentNode = currState.getPos();
-			// Clone the inventory of the state as it will be used multiple times
-			invClone = currState.getInv();
-			// Check if state has been visited
-			if (tileVisited(visited, currentNode)) continue;
-			// Add the current node's position to the visited set
-			visited.add(currentNode);
-			currDirection = currState.getDirection();
-			if(currentNode.equals(goal)) break;
-			// If agent is out of bounds of the map, discard state
-			if (currentNode.x >= 160 || currentNode.y >= 160) continue;
-			if (currentNode.x < 0 || currentNode.y < 0) continue;
-			
-			// Tile above
-			ArrayList<Tile> tempInv = deepClone(invClone);
-			tempPoint = new Point(currentNode.x, currentNode.y + 1);
-			if (this.addStateToQueue(tempPoint, canUseStone, tempInv, getGold, currState.getStoneUsage())) {
-				pq.add(new State(currState, Direction.NORTH, tempPoint,
-						currBehaviour, this, tempInv, goal, currState.getStoneUsage()));
-			}
-			
-			// Tile Below
-			tempInv = deepClone(invClone);
-			tempPoint = new Point(currentNode.x, currentNode.y - 1);
-			if (this.addStateToQueue(tempPoint, canUseStone, tempInv, getGold, currState.getStoneUsage())) {
-				pq.add(new State(currState, Direction.SOUTH, tempPoint,
-						currBehaviour, this, tempInv, goal, currState.getStoneUsage()));
-			}
-			
-			// Tile Left
-			tempInv = deepClone(invClone);
-			tempPoint = new Point(currentNode.x - 1, currentNode.y);
-			if (this.addStateToQueue(tempPoint, canUseStone, tempInv, getGold, currState.getStoneUsage())) {
-				pq.add(new State(currState, Direction.WEST, tempPoint,
-						currBehaviour, this, tempInv, goal, currState.getStoneUsage()));
-			}
-			
-			// Tile Right
-			tempInv = deepClone(invClone);
-			tempPoint = new Point(currentNode.x + 1, currentNode.y);
-			if (this.addStateToQueue(tempPoint, canUseStone, tempInv, getGold, currState.getStoneUsage())) {
-				pq.add(new State(currState, Direction.EAST, tempPoint,
-						currBehaviour, this, tempInv, goal, currState.getStoneUsage()));
-			}
-			
-			iterations++;
-			if (iterations == 5000) break;
-		}
+		if (Tile.isItem(map.get(goal.x, goal.y))) getGold = true;
 		
+		boolean found = search.search(currPos, currDirection, goal, currBehaviour, inventory, getGold);
+		metrics.recordSearch(search.getNodesExpanded(), found);
+		if (!found) return null;
 
-		Queue<Move> path = currState.getPath();
+		search.getPath(path);
 		// Create a list of items to reach the gold
 		if (currBehaviour.getBehaviour().equals("GetGold")) {
 			itemsRequired = getItemsToReachGold(path, this.currPos);
 		}
-		// Remove the state that was used to begin the search. It was only temporary to begin with
-		// and it has no value in terms of being in the path to the goal as it can lead the agent to lose the game.
-		path.remove();
 		
-		return (iterations == 5000) ? null : path;
+		return path;
 	}
 	
-	public ArrayList<Tile> getItemsRequired() {
-		return itemsRequired;
+	/**
+	 * Finds a path to the nearest copy of the most wanted item that can be reached, with one search
+	 * for every item type instead of one search per type
+	 * @param wanted			Item types to look for, most wanted first, at most 8
+	 * @param count				Number of types used from the start of wanted
+	 * @param currDirection		Direction the player is facing
+	 * @param itemPos			Set to the position of the item the path leads to
+	 * @return					Path to the item or null if none of the items can be reached
+	 */
+	public PathBuffer nearestItem(Tile[] wanted, int count, Direction currDirection, Point itemPos) {
+		search.clearTargets();
+		for (int i = 0; i < count; i++) {
+			for (int j = 0; j < items.count(wanted[i]); j++) {
+				int cell = items.cell(wanted[i], j);
+				search.addTarget(map.cellX(cell), map.cellY(cell), i);
+			}
+		}
+		// Items are goals, so unexplored tiles cannot be passed after a stone is used
+		int found = search.searchNearest(currPos, currDirection, count, true, inventory, true);
+		metrics.recordSearch(search.getNodesExpanded(), found != 0);
+		if (found == 0) return null;
+		
+		int group = Integer.numberOfTrailingZeros(found);
+		int cell = search.getNearestCell(group);
+		itemPos.setLocation(map.cellX(cell), map.cellY(cell));
+		search.getPathTo(cell, path);
+		return path;
 	}
 	
 	/**
-	 *  Determines if a state will be added to the priority queue or not depending on a variety of factors 
-	 * @param tempPoint				Proposed Point
-	 * @param canUseStone			Whether or not the agent is allowed to use  Stepping Stones
-	 * @param tempInv				A copy of the player inventory
-	 * @param getGold				Whether or not the agent is searching for gold
-	 * @param usesStone				If the current path uses a stepping stone
-	 * @return						True/False depending on if the state can be added to the queue
+	 * Finds a path to the frontier point that should reveal the most unexplored tiles for the moves spent
+	 * reaching it. One search builds the cost of reaching every point the player can get to without using
+	 * stepping stones, then every frontier point is scored in a single pass by the unexplored tiles in the
+	 * view around it divided by that cost, so no search is wasted on a point that cannot be reached.
+	 * The returned path is reused by the next search so callers that keep it must copy it.
+	 * @param currDirection		Direction the player is facing
+	 * @param target			Set to the frontier point the path leads to
+	 * @return					Path to the frontier point or null if no frontier point can be reached
 	 */
-	private boolean addStateToQueue(Point tempPoint, boolean canUseStone, ArrayList<Tile> tempInv, boolean getGold, boolean usesStone) {
-		if (tempPoint.x >= 160 || tempPoint.y >= 160) return false;
-		if (canPassTile(tempPoint, canUseStone, tempInv, getGold, usesStone)) {
-			if (map[tempPoint.y][tempPoint.x] != Tile.Water) {
-				return true;
-			} else if (map[tempPoint.y][tempPoint.x] == Tile.Water && tempInv.contains(Tile.StepStone)) {
-				tempInv.remove(Tile.StepStone);
-				return true;
-			} else {
-				return false;
+	public PathBuffer exploreFrontier(Direction currDirection, Point target) {
+		if (frontier.isEmpty()) return null;
+		search.searchReachable(currPos, currDirection, false, inventory);
+		
+		int best = -1;
+		int bestGain = 0;
+		int bestCost = 1;
+		for (int i = 0; i < frontier.size(); i++) {
+			int cell = frontier.get(i);
+			int cost = search.getCost(cell);
+			if (cost <= 0) continue;
+			int gain = map.countAround(map.cellX(cell), map.cellY(cell), viewRadius, Tile.Unexplored);
+			// Compare gain / cost without dividing
+			if (best < 0 || (long) gain * bestCost > (long) bestGain * cost) {
+				best = cell;
+				bestGain = gain;
+				bestCost = cost;
 			}
 		}
-		return false;
+		metrics.recordSearch(search.getNodesExpanded(), best >= 0);
+		if (best < 0) return null;
+		
+		target.setLocation(map.cellX(best), map.cellY(best));
+		search.getPathTo(best, path);
+		return path;
+	}
+	
+	/**
+	 * Finds a path to the target chosen by Monte Carlo tree search over trips to the wanted items and
+	 * to the most promising frontier points, looking a few trips ahead instead of taking the best next one.
+	 * The closest copy of each wanted item is a candidate, and only paths without stepping stones are planned.
+	 * A decision that found nothing is not tried again until a tile, the inventory or the items to plan for change,
+	 * since none of them changing means nothing new can be reached.
+	 * The returned path is reused by the next search so callers that keep it must copy it.
+	 * @param wanted			Item types worth picking up
+	 * @param count				Number of types used from the start of wanted
+	 * @param currDirection		Direction the player is facing
+	 * @param target			Set to the location the path leads to
+	 * @return					Path to the target or null if no item or frontier point can be reached
+	 * @see MonteCarloPlanner
+	 */
+	public PathBuffer planAhead(Tile[] wanted, int count, Direction currDirection, Point target) {
+		int items = 0;
+		for (int i = 0; i < count && items < plannedItems.length; i++) {
+			int closest = -1;
+			int closestDistance = Integer.MAX_VALUE;
+			for (int j = 0; j < this.items.count(wanted[i]); j++) {
+				int cell = this.items.cell(wanted[i], j);
+				int distance = Math.abs(map.cellX(cell) - currPos.x) + Math.abs(map.cellY(cell) - currPos.y);
+				if (distance < closestDistance) {
+					closest = cell;
+					closestDistance = distance;
+				}
+			}
+			if (closest >= 0) plannedItems[items++] = closest;
+		}
+		if (tileChanges == failedChanges && inventory == failedInventory && items == failedItemCount
+				&& Arrays.equals(plannedItems, 0, items, failedItems, 0, items)) {
+			metrics.recordPlanSkip();
+			return null;
+		}
+		int cell = planner.plan(currPos, currDirection, inventory, plannedItems, items);
+		metrics.recordPlan(planner.getIterations(), cell >= 0, planner.fellBack());
+		if (cell < 0) {
+			failedChanges = tileChanges;
+			failedInventory = inventory;
+			failedItemCount = items;
+			System.arraycopy(plannedItems, 0, failedItems, 0, items);
+			return null;
+		}
+		
+		target.setLocation(map.cellX(cell), map.cellY(cell));
+		search.getPathTo(cell, path);
+		return path;
+	}
+	
+	/**
+	 * Sets how much work each decision of planAhead may do, and must be called before planAhead is used.
+	 * The planner is given its own generator seeded from this graph's, so its rollouts do not change the
+	 * random choices made by the rest of the agent.
+	 * @param iterations	Most tree search iterations for a decision
+	 * @param nanos			Most time for a decision, 0 for no time limit
+	 */
+	public void setPlanBudget(int iterations, long nanos) {
+		if (planner == null) planner = new MonteCarloPlanner(map, search, frontier, new Random(rand.nextLong()));
+		planner.setBudget(iterations, nanos);
+	}
+	
+	/**
+	 * Finds a path to the goal of the GetGold behaviour, reusing the work done on previous turns.
+	 * The incremental planner only finds paths without stepping stones, if there is no such path
+	 * a full A* search is done instead. On the way home only the next move is returned, looked up in the
+	 * distance field rooted at the start position.
+	 * The returned path is reused by the next search so callers that keep it must copy it.
+	 * @param currBehaviour					The GetGold behavior of the agent
+	 * @param currDirection					The direction the player is currently facing
+	 * @return								Path to the goal or null if no path available
+	 * @see DStarLite
+	 */
+	public PathBuffer replan(Behaviour currBehaviour, Direction currDirection) {
+		Point goal = currBehaviour.getGoal();
+		if (map.cellAt(goal.x, goal.y) < 0) return null;
+		DStarLite planner = goal.equals(homePos) ? homeField : goldPlanner;
+		boolean found = planner.plan(currPos, goal, inventory);
+		metrics.recordReplan(planner.getNodesExpanded());
+		if (!found) return astar(currBehaviour, currDirection);
+		
+		if (planner == homeField) {
+			// The field holds the best move from every cell, so the way home is read one move at a time
+			// and each turn follows the field as repaired for the tiles the last move revealed
+			path.reset(0);
+			Direction next = homeField.nextMove(currPos);
+			if (next != null) path.add(next);
+		} else {
+			planner.getPath(path);
+		}
+		itemsRequired = getItemsToReachGold(path, this.currPos);
+		return path;
+	}
+	
+	/**
+	 * Counters for the searches done on this map
+	 * @return		Metrics of the game being played on this map
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Number of nodes expanded by the last incremental plan
+	 * @return		Nodes expanded by the last call to replan
+	 */
+	public int getReplanExpansions() {
+		return goldPlanner.getNodesExpanded();
+	}
+	
+	/**
+	 * Number of nodes expanded by the most recent A* search, used to compare search cost
+	 * @return		Nodes expanded by the last call to astar
+	 */
+	public int getNodesExpanded() {
+		return search.getNodesExpanded();
+	}
+	
+	public ArrayList<Tile> getItemsRequired() {
+		return itemsRequired;
 	}
 	
 	/**
@@ -530,13 +639,13 @@ public class Graph {
 	 * @param startPos		The current player position
 	 * @return				List of items needed to get to gold
 	 */
-	private ArrayList<Tile> getItemsToReachGold(Queue<Move> path, Point startPos) {
+	private ArrayList<Tile> getItemsToReachGold(PathBuffer path, Point startPos) {
 		
 		ArrayList<Tile> requiredItems = new ArrayList<Tile>();
 		Point currPoint = new Point(startPos.x, startPos.y);
 		
-		for (Move m: path) {
-			switch(m.d){
+		for (int i = 0; i < path.size(); i++) {
+			switch(path.get(i)){
 				case NORTH:
 					currPoint.translate(0, 1);
 					break;
@@ -550,22 +659,20 @@ public class Graph {
 					currPoint.translate(-1, 0);
 					break;
 			}
-			// If the point is outside the map the path is invalid
-			if (currPoint.y >= 160 || currPoint.x >= 160) return null;
+			// If the point is outside the part of the map that can be searched the path is invalid
+			int cell = map.cellAt(currPoint.x, currPoint.y);
+			if (cell < 0) return null;
 
 			// Determine which item is required to bypass the obstacle and add it to the list
-			switch (map[currPoint.y][currPoint.x]) {
-			case Water:
+			int flags = map.flags(cell);
+			if ((flags & Tile.needsStoneFlag) != 0) {
 				requiredItems.add(Tile.StepStone);
-				break;
-			case Tree:
+			} else if ((flags & Tile.needsAxeFlag) != 0) {
 				if (!requiredItems.contains(Tile.Axe)) requiredItems.add(Tile.Axe);
-				break;
-			case Door:
+			} else if ((flags & Tile.needsKeyFlag) != 0) {
 				if (!requiredItems.contains(Tile.Key)) requiredItems.add(Tile.Key);
-				break;
-			case Unexplored:
-				requiredItems.add(Tile.Unexplored); break;
+			} else if ((flags & Tile.unexploredFlag) != 0) {
+				requiredItems.add(Tile.Unexplored);
 			}
 		}
 		
@@ -576,11 +683,11 @@ public class Graph {
 	 * Returns a list of items still needed, also includes unexplored tiles.
 	 * If a path relies on only unexplored tiles it is an invalid path.
 	 * If a path relies on unexplored tiles after using a stepping stone it is again invalid.
-	 * @param path			Queue of Move representing the proposed path
+	 * @param path			Moves left in the proposed path
 	 * @param startPos		Location of the Agent
 	 * @return				List of items/unexplored tiles, if not empty path cannot be completed
 	 */
-	public ArrayList<Tile> itemsStillRequiredForTravel(Queue<Move> path, Point startPos) {
+	public ArrayList<Tile> itemsStillRequiredForTravel(PathBuffer path, Point startPos) {
 		ArrayList<Tile> items = getItemsToReachGold(path, startPos);
 		// If items to gold returns null the path is impossible to complete
 		if (items == null) {
@@ -589,8 +696,8 @@ public class Graph {
 			return items;
 		}
 		
-		ArrayList<Tile> itemsLeft = deepClone(items);
-		ArrayList<Tile> inventory = deepClone(playerInv);
+		ArrayList<Tile> itemsLeft = new ArrayList<Tile>(items);
+		int inventory = this.inventory;
 		
 		int numUnexploredTiles = 0;
 		Tile first;
@@ -615,14 +722,14 @@ public class Graph {
 		// Iterate through the tiles and remove them if necessary items are possessed
 		// Unexplored tiles are not possible if a stepping stone is used
 		for (Tile item: items) {
-			if (item == Tile.Water && inventory.contains(Tile.StepStone)) {
+			if (item == Tile.Water && Inventory.stones(inventory) > 0) {
 				itemsLeft.remove(item);
-				inventory.remove(Tile.StepStone);
+				inventory = Inventory.useStone(inventory);
 				usingStone = true;
 			}
-			else if (item == Tile.Door && inventory.contains(Tile.Key))
+			else if (item == Tile.Door && Inventory.hasKey(inventory))
 				itemsLeft.remove(item);
-			else if (item == Tile.Tree && inventory.contains(Tile.Axe))
+			else if (item == Tile.Tree && Inventory.hasAxe(inventory))
 				itemsLeft.remove(item);
 			else if (item == Tile.Unexplored && !usingStone) {
 				itemsLeft.remove(item);
@@ -633,35 +740,70 @@ public class Graph {
 	}
 	
 	/**
-	 * Creates a deep copy of the inventory list passed in
-	 * @param inventory Inventory list to be cloned
-	 * @return Deep clone of the inventory list passed
-	 */
-	private ArrayList<Tile> deepClone(ArrayList<Tile> inventory) {
-		ArrayList<Tile> newInventory = new ArrayList<Tile>();
-		for (Tile currItem: inventory) {
-			switch (currItem) {
-			case StepStone: 
-				newInventory.add(Tile.StepStone);
-				break;
-			case Axe: 
-				newInventory.add(Tile.Axe);
-				break;
-			case Key: 
-				newInventory.add(Tile.Key);
-				break;
-			case Unexplored:
-				newInventory.add(Tile.Unexplored);
-				break;
-			case Water:
-				newInventory.add(Tile.Water);
-				break;
-			case Door:
-				newInventory.add(Tile.Door);
-				break;
+	 * Moves along a row of the map one cell to the east, so scans only look up a location when
+	 * they start a row or come back from an unallocated chunk
+	 * @param cell		Cell at (x, y) or -1 if it is not allocated
+	 * @param x			X coordinate of the cell
+	 * @param y			Y coordinate of the cell
+	 * @return			Cell at (x + 1, y) or -1 if it is not allocated
+	 */
+	private int nextInRow(int cell, int x, int y) {
+		return (cell < 0) ? map.cellAt(x + 1, y) : map.neighbour(cell, WorldMap.east);
+	}
+	
+	/**
+	 * Changes the tile at an X/Y coord and tells the incremental planners and the item index if it is different.
+	 * Package private so benchmarks can lay out synthetic maps.
+	 * @param x			X coordinate to be changed
+	 * @param y			Y coordinate to be changed
+	 * @param tile		New tile
+	 */
+	void setTile(int x, int y, Tile tile) {
+		if (map.get(x, y) == tile) return;
+		int cell = map.set(x, y, tile);
+		tileChanges++;
+		// Keep the item index in step with the map, seeing an item again does not add it twice
+		if (Tile.isItem(tile)) {
+			items.add(tile, x, y);
+		} else {
+			items.remove(x, y);
+		}
+		goldPlanner.tileChanged(cell);
+		homeField.tileChanged(cell);
+		updateFrontier(cell);
+	}
+	
+	/**
+	 * Updates the frontier after the tile of a cell changed. Only the cell and its neighbours can gain
+	 * or lose a known tile next to them, so nothing else needs to be checked.
+	 * @param cell		Cell index of the tile that changed
+	 */
+	private void updateFrontier(int cell) {
+		checkFrontier(cell);
+		for (int dir = WorldMap.north; dir <= WorldMap.east; dir++) {
+			int next = map.neighbour(cell, dir);
+			if (next >= 0) checkFrontier(next);
+		}
+	}
+	
+	/**
+	 * Adds a cell to the frontier if it is unexplored and next to a tile that is not an obstacle,
+	 * otherwise removes it
+	 * @param cell		Cell index
+	 */
+	private void checkFrontier(int cell) {
+		boolean onFrontier = false;
+		if ((map.flags(cell) & Tile.unexploredFlag) != 0) {
+			for (int dir = WorldMap.north; dir <= WorldMap.east && !onFrontier; dir++) {
+				int next = map.neighbour(cell, dir);
+				onFrontier = next >= 0 && (map.flags(next) & Tile.obstacleFlag) == 0;
 			}
 		}
-		return newInventory;
+		if (onFrontier) {
+			frontier.add(cell);
+		} else {
+			frontier.remove(cell);
+		}
 	}
 	
 	/**
@@ -671,7 +813,7 @@ public class Graph {
 	 * @return			Type of tile at the location
 	 */
 	public Tile getTileAt(int x, int y) {
-		return map[y][x];
+		return map.get(x, y);
 	}
 	
 	/**
@@ -680,13 +822,8 @@ public class Graph {
 	 * @return			Location of tile if it has been seen
 	 */
 	public Point getLocationTile(Tile tile) {
-		for (int y = exploredHighBound.y; y >= exploredLowBound.y; y--) {
-			for (int x = exploredLowBound.x; x <= exploredHighBound.x; x++) {
-				if (x == currPos.x && y == currPos.y) {
-					if (map[y][x] == tile) return new Point(x, y);
-				}
-			}
-		}
+		// Only the player's location was ever compared, and it is always inside the explored area
+		if (map.get(currPos.x, currPos.y) == tile) return new Point(currPos);
 		return null;
 	}
 	
@@ -695,7 +832,6 @@ public class Graph {
 	 * @return	A random move
 	 */
 	public Move getRandomMove() {
-		Random rand = new Random();
 		Direction d = Direction.NONE;
 		switch (rand.nextInt(4)) {
 		case 0:
@@ -711,23 +847,16 @@ public class Graph {
 			d = Direction.WEST;
 			break;
 		}
-		Move m = new Move();
-		m.d = d;
-		return m;
+		return Move.of(d);
 	}
 	
 	/**
 	 * Gets the location of a given item type
 	 * @param itemName			Type of item being searched for
-	 * @return					Location of the item if, it has been seen by the agent
+	 * @return					Location of the first one seen by the agent, or null if none are on the map
 	 */
 	public Point getItemPos(Tile itemName) {
-		for (Item currItem: itemsOnMap) {
-			if (currItem.getItemName() == itemName) {
-				return currItem.getPos();
-			}
-		}
-		return null;
+		return items.first(itemName);
 	}
 	
 	/**
@@ -749,42 +878,21 @@ public class Graph {
 	 * Returns a boolean value indicating if the agent can pass a certain tile.
 	 * For normal obstacles they can be passed if the appropriate item is possessed
 	 * If the tile is unexplored it is not allowed if the agent is using the stone and trying to get to gold
-	 * @param p						Location of tile to be checked
+	 * @param x						X coordinate of tile to be checked
+	 * @param y						Y coordinate of tile to be checked
 	 * @param canUseStone			If the agent is allowed to use stepping stones
-	 * @param playerInv				A copy of the player's current inventory
+	 * @param inventory				Packed inventory of the player
 	 * @param getGold				If the player is trying to get to gold
 	 * @param usesStone				Whether the path uses a stone
 	 * @return						Boolean indicating if the agent can pass throguh the tile
 	 */
-	private boolean canPassTile(Point p, boolean canUseStone, ArrayList<Tile> playerInv, boolean getGold, boolean usesStone) {
-		switch (map[p.y][p.x]) {
-			case Door:
-			    return playerInv.contains(Tile.Key);
-			case Water:
-				if (!canUseStone) return false;
-				return playerInv.contains(Tile.StepStone);
-			case Wall:
-				return false;
-			case Unexplored:
-				if (getGold == true && usesStone) return false;
-				return true;
-			case Tree:
-				return playerInv.contains(Tile.Axe);
-			default:
-				return true;
-		}
-	}
-	
-	/**
-	 * Returns a boolean indicating if the tile has been visited in the A* search
-	 * @param visited			List of points visited so far
-	 * @param pos				Current position
-	 * @return					Boolean indicating if the point is in the visited list
-	 */
-	private boolean tileVisited(ArrayList<Point> visited, Point pos) {
-		for (Point currPoint: visited) {
-			if (currPoint.x == pos.x && currPoint.y == pos.y) return true;
-		}
-		return false;
+	private boolean canPassTile(int x, int y, boolean canUseStone, int inventory, boolean getGold, boolean usesStone) {
+		int flags = map.get(x, y).flags;
+		if ((flags & Tile.wallFlag) != 0) return false;
+		if ((flags & Tile.needsKeyFlag) != 0) return Inventory.hasKey(inventory);
+		if ((flags & Tile.needsAxeFlag) != 0) return Inventory.hasAxe(inventory);
+		if ((flags & Tile.needsStoneFlag) != 0) return canUseStone && Inventory.stones(inventory) > 0;
+		if ((flags & Tile.unexploredFlag) != 0) return !(getGold && usesStone);
+		return true;
 	}
 }
@@ -1,4 +1,89 @@
+/**
+ * Packs the items the player can hold into a single int so an inventory can be copied by value
+ * and stored in primitive arrays during a search.
+ * The lowest bits flag the axe, key and gold and the bits above them count stepping stones.
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public final class Inventory {
+	public static final int empty = 0;
+	private static final int axeFlag = 1;
+	private static final int keyFlag = 1 << 1;
+	private static final int goldFlag = 1 << 2;
+	private static final int stoneShift = 3;
+	private static final int oneStone = 1 << stoneShift;
 
-public class Inventory {
+	private Inventory() {
+	}
 
+	/**
+	 * Adds an item to an inventory
+	 * @param inventory		Packed inventory
+	 * @param item			Item picked up, tiles that are not items are ignored
+	 * @return				Packed inventory holding the item
+	 */
+	public static int add(int inventory, Tile item) {
+		switch (item) {
+		case Axe:
+			return inventory | axeFlag;
+		case Key:
+			return inventory | keyFlag;
+		case Gold:
+			return inventory | goldFlag;
+		case StepStone:
+			return inventory + oneStone;
+		default:
+			return inventory;
+		}
+	}
+
+	/**
+	 * If an inventory holds at least one of an item
+	 * @param inventory		Packed inventory
+	 * @param item			Item to be queried for
+	 * @return				True if the item is held
+	 */
+	public static boolean has(int inventory, Tile item) {
+		switch (item) {
+		case Axe:
+			return hasAxe(inventory);
+		case Key:
+			return hasKey(inventory);
+		case Gold:
+			return hasGold(inventory);
+		case StepStone:
+			return stones(inventory) > 0;
+		default:
+			return false;
+		}
+	}
+
+	public static boolean hasAxe(int inventory) {
+		return (inventory & axeFlag) != 0;
+	}
+
+	public static boolean hasKey(int inventory) {
+		return (inventory & keyFlag) != 0;
+	}
+
+	public static boolean hasGold(int inventory) {
+		return (inventory & goldFlag) != 0;
+	}
+
+	/**
+	 * Number of stepping stones held
+	 * @param inventory		Packed inventory
+	 * @return				Stones held
+	 */
+	public static int stones(int inventory) {
+		return inventory >>> stoneShift;
+	}
+
+	/**
+	 * Removes one stepping stone, the inventory must hold at least one
+	 * @param inventory		Packed inventory
+	 * @return				Packed inventory with one less stone
+	 */
+	public static int useStone(int inventory) {
+		return inventory - oneStone;
+	}
 }
@@ -0,0 +1,123 @@
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.EnumMap;
+
+/**
+ * Positions of the items seen on the map, grouped by item type. Each type keeps the world map cells
+ * of its items in the order they were first seen, and every cell remembers which type indexed it,
+ * so checking for a type, finding its first position and adding or removing a position never scan
+ * the other items. Seeing the same item again from another angle does not add a second entry.
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Graph#itemSeen(Tile)
+ */
+public class ItemIndex {
+	private static final Tile[] tiles = Tile.values();
+
+	/**
+	 * Cells of one item type in the order they were seen
+	 */
+	private static class Cells {
+		int[] cells = new int[4];
+		int size;
+	}
+
+	private WorldMap world;
+	private EnumMap<Tile, Cells> items;
+	// Ordinal + 1 of the item type indexed at each cell, 0 if there is none
+	private byte[] typeAt;
+
+	/**
+	 * Constructor for an empty index
+	 * @param world			Map the items are on, used to find the cell of a position
+	 */
+	public ItemIndex(WorldMap world) {
+		this.world = world;
+		items = new EnumMap<Tile, Cells>(Tile.class);
+		for (Tile tile: tiles) {
+			if (Tile.isItem(tile)) items.put(tile, new Cells());
+		}
+		typeAt = new byte[Math.max(world.getCapacity(), WorldMap.chunkCells)];
+	}
+
+	/**
+	 * Adds an item at a location already written to the world map, replacing any other item indexed there
+	 * @param item			Type of the item
+	 * @param x				X coordinate of the item
+	 * @param y				Y coordinate of the item
+	 * @return				False if the item was already indexed at the location
+	 */
+	public boolean add(Tile item, int x, int y) {
+		int cell = world.cellAt(x, y);
+		if (cell >= typeAt.length) typeAt = Arrays.copyOf(typeAt, Math.max(world.getCapacity(), typeAt.length * 2));
+		if (typeAt[cell] == item.ordinal() + 1) return false;
+		remove(x, y);
+		Cells c = items.get(item);
+		if (c.size == c.cells.length) c.cells = Arrays.copyOf(c.cells, c.size * 2);
+		c.cells[c.size++] = cell;
+		typeAt[cell] = (byte) (item.ordinal() + 1);
+		return true;
+	}
+
+	/**
+	 * Removes the item at a location if there is one
+	 * @param x				X coordinate of the item
+	 * @param y				Y coordinate of the item
+	 * @return				Type of the item removed or null if no item was indexed there
+	 */
+	public Tile remove(int x, int y) {
+		int cell = world.cellAt(x, y);
+		if (cell < 0 || cell >= typeAt.length || typeAt[cell] == 0) return null;
+		Tile item = tiles[typeAt[cell] - 1];
+		typeAt[cell] = 0;
+		Cells c = items.get(item);
+		// Keep the rest in the order they were seen, there are only ever a few of each type
+		for (int i = 0; i < c.size; i++) {
+			if (c.cells[i] == cell) {
+				System.arraycopy(c.cells, i + 1, c.cells, i, c.size - i - 1);
+				c.size--;
+				break;
+			}
+		}
+		return item;
+	}
+
+	/**
+	 * If any item of a type is on the map
+	 * @param item			Type of item
+	 * @return				True if at least one is indexed
+	 */
+	public boolean contains(Tile item) {
+		return count(item) > 0;
+	}
+
+	/**
+	 * Number of items of a type on the map
+	 * @param item			Type of item
+	 * @return				Number of positions indexed for the type
+	 */
+	public int count(Tile item) {
+		Cells c = items.get(item);
+		return (c == null) ? 0 : c.size;
+	}
+
+	/**
+	 * Packed cell of one of the items of a type
+	 * @param item			Type of item
+	 * @param i				Index below count(item), items are in the order they were seen
+	 * @return				Cell index in the world map
+	 */
+	public int cell(Tile item, int i) {
+		return items.get(item).cells[i];
+	}
+
+	/**
+	 * Location of the first item of a type that was seen
+	 * @param item			Type of item
+	 * @return				New point at the location or null if none is on the map
+	 */
+	public Point first(Tile item) {
+		if (!contains(item)) return null;
+		int cell = cell(item, 0);
+		return new Point(world.cellX(cell), world.cellY(cell));
+	}
+}
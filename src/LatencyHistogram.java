@@ -0,0 +1,85 @@
+/**
+ * Fixed size histogram of latencies in nanoseconds with log-linear buckets, in the style of HdrHistogram.
+ * Every power of two is split into 32 equal buckets so recorded values keep about 3% precision, recording
+ * is a few shifts and an array increment, and the histogram never allocates after construction.
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public class LatencyHistogram {
+	private static final int subBucketBits = 5;
+	private static final int subBuckets = 1 << subBucketBits;
+
+	private long[] counts;
+	private long count;
+	private long total;
+	private long max;
+
+	/**
+	 * Constructor for an empty histogram
+	 */
+	public LatencyHistogram() {
+		counts = new long[(64 - subBucketBits + 1) * subBuckets];
+	}
+
+	/**
+	 * Records one latency
+	 * @param nanos		Latency in nanoseconds, negative values are recorded as 0
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts[bucket(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos > max) max = nanos;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Mean of all recorded latencies
+	 * @return		Mean in nanoseconds, 0 if nothing was recorded
+	 */
+	public long getMean() {
+		return (count == 0) ? 0 : total / count;
+	}
+
+	/**
+	 * Latency that the given fraction of recorded values are at or below
+	 * @param fraction		Fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+	 * @return				Upper bound of the bucket holding the percentile, 0 if nothing was recorded
+	 */
+	public long getPercentile(double fraction) {
+		if (count == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(upperBound(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * Bucket of a value: values below 64 get their own bucket, each larger power of two is split in 32
+	 */
+	private static int bucket(long value) {
+		if (value < subBuckets) return (int) value;
+		int shift = 63 - Long.numberOfLeadingZeros(value) - subBucketBits;
+		return (shift + 1) * subBuckets + (int) (value >>> shift) - subBuckets;
+	}
+
+	/**
+	 * Largest value that falls in a bucket
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < subBuckets) return bucket;
+		int shift = bucket / subBuckets - 1;
+		long sub = bucket % subBuckets + subBuckets;
+		return ((sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,223 @@
+/**
+ * Counters and latency histograms for one game of the agent's decision loop. Recording only
+ * increments fields so it can stay on in every game; the numbers are read at the end of a game
+ * as a JSON line.
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Agent#getMetrics()
+ */
+public class Metrics {
+	private LatencyHistogram turn;
+	private LatencyHistogram getGold;
+	private LatencyHistogram getItem;
+	private LatencyHistogram explore;
+	private LatencyHistogram planAhead;
+
+	private long turns;
+	private long firstTurnNanos;
+	private long searches;
+	private long searchExpansions;
+	private long searchFailures;
+	private long replans;
+	private long replanExpansions;
+	private long goldPathReuses;
+	private long plans;
+	private long planIterations;
+	private long planFailures;
+	private long planFallbacks;
+	private long planSkips;
+
+	/**
+	 * Constructor with every counter at zero
+	 */
+	public Metrics() {
+		turn = new LatencyHistogram();
+		getGold = new LatencyHistogram();
+		getItem = new LatencyHistogram();
+		explore = new LatencyHistogram();
+		planAhead = new LatencyHistogram();
+	}
+
+	/**
+	 * Records the time taken to choose an action for one turn
+	 * @param nanos		Time spent in Agent.get_action
+	 */
+	public void recordTurn(long nanos) {
+		if (turns == 0) firstTurnNanos = nanos;
+		turns++;
+		turn.record(nanos);
+	}
+
+	/**
+	 * Records the time spent trying the GetGold behaviour in one turn
+	 * @param nanos		Time spent
+	 */
+	public void recordGetGold(long nanos) {
+		getGold.record(nanos);
+	}
+
+	/**
+	 * Records the time spent trying the GetItem behaviour in one turn
+	 * @param nanos		Time spent
+	 */
+	public void recordGetItem(long nanos) {
+		getItem.record(nanos);
+	}
+
+	/**
+	 * Records the time spent trying the Explore behaviour in one turn
+	 * @param nanos		Time spent
+	 */
+	public void recordExplore(long nanos) {
+		explore.record(nanos);
+	}
+
+	/**
+	 * Records the time spent trying the PlanAhead behaviour in one turn
+	 * @param nanos		Time spent
+	 */
+	public void recordPlanAhead(long nanos) {
+		planAhead.record(nanos);
+	}
+
+	/**
+	 * Records one A* search
+	 * @param expansions	Nodes expanded by the search
+	 * @param found			If a path was found, a search that fails has exhausted its open list
+	 */
+	public void recordSearch(int expansions, boolean found) {
+		searches++;
+		searchExpansions += expansions;
+		if (!found) searchFailures++;
+	}
+
+	/**
+	 * Records one plan of the incremental gold planner
+	 * @param expansions	Nodes expanded by the plan
+	 */
+	public void recordReplan(int expansions) {
+		replans++;
+		replanExpansions += expansions;
+	}
+
+	/**
+	 * Records one decision of the Monte Carlo planner
+	 * @param iterations	Tree search iterations run
+	 * @param found			If a target was chosen
+	 * @param fallback		If the target was the first candidate because the tree had no trip to choose
+	 */
+	public void recordPlan(int iterations, boolean found, boolean fallback) {
+		plans++;
+		planIterations += iterations;
+		if (!found) planFailures++;
+		if (fallback) planFallbacks++;
+	}
+
+	/**
+	 * Records a turn where the planner was not run because its last decision found nothing and the map
+	 * has not changed since
+	 */
+	public void recordPlanSkip() {
+		planSkips++;
+	}
+
+	/**
+	 * Records a turn where the saved path to the gold was followed instead of searching again
+	 */
+	public void recordGoldPathReuse() {
+		goldPathReuses++;
+	}
+
+	public long getTurns() {
+		return turns;
+	}
+
+	/**
+	 * Time taken to choose the first action of the game, which also sets up the map and pays for any
+	 * code the JVM has not compiled yet
+	 * @return		Nanoseconds spent in the first call to Agent.get_action
+	 */
+	public long getFirstTurnNanos() {
+		return firstTurnNanos;
+	}
+
+	public long getSearches() {
+		return searches;
+	}
+
+	public long getSearchExpansions() {
+		return searchExpansions;
+	}
+
+	public long getSearchFailures() {
+		return searchFailures;
+	}
+
+	public long getReplans() {
+		return replans;
+	}
+
+	public long getReplanExpansions() {
+		return replanExpansions;
+	}
+
+	public long getGoldPathReuses() {
+		return goldPathReuses;
+	}
+
+	public long getPlans() {
+		return plans;
+	}
+
+	public long getPlanIterations() {
+		return planIterations;
+	}
+
+	public long getPlanFailures() {
+		return planFailures;
+	}
+
+	public long getPlanFallbacks() {
+		return planFallbacks;
+	}
+
+	public long getPlanSkips() {
+		return planSkips;
+	}
+
+	/**
+	 * Writes every counter and histogram summary as a single line of JSON, latencies are in microseconds
+	 * @return		JSON object on one line
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{");
+		json.append("\"turns\":").append(turns);
+		json.append(",\"firstTurnUs\":").append(firstTurnNanos / 1000.0);
+		json.append(",\"searches\":").append(searches);
+		json.append(",\"searchExpansions\":").append(searchExpansions);
+		json.append(",\"searchFailures\":").append(searchFailures);
+		json.append(",\"replans\":").append(replans);
+		json.append(",\"replanExpansions\":").append(replanExpansions);
+		json.append(",\"goldPathReuses\":").append(goldPathReuses);
+		json.append(",\"plans\":").append(plans);
+		json.append(",\"planIterations\":").append(planIterations);
+		json.append(",\"planFailures\":").append(planFailures);
+		json.append(",\"planFallbacks\":").append(planFallbacks);
+		json.append(",\"planSkips\":").append(planSkips);
+		appendHistogram(json, "turn", turn);
+		appendHistogram(json, "getGold", getGold);
+		appendHistogram(json, "getItem", getItem);
+		appendHistogram(json, "explore", explore);
+		appendHistogram(json, "planAhead", planAhead);
+		return json.append('}').toString();
+	}
+
+	private static void appendHistogram(StringBuilder json, String name, LatencyHistogram h) {
+		json.append(",\"").append(name).append("\":{");
+		json.append("\"count\":").append(h.getCount());
+		json.append(",\"meanUs\":").append(h.getMean() / 1000.0);
+		json.append(",\"p50Us\":").append(h.getPercentile(0.5) / 1000.0);
+		json.append(",\"p99Us\":").append(h.getPercentile(0.99) / 1000.0);
+		json.append(",\"maxUs\":").append(h.getMax() / 1000.0);
+		json.append('}');
+	}
+}
@@ -0,0 +1,480 @@
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Monte Carlo tree search over macro actions, used to choose the next place to go when the gold cannot
+ * be reached yet. A macro action is a trip to one candidate target: the nearest reachable copy of a
+ * wanted item, or one of the frontier cells that would reveal the most unexplored tiles for the moves it
+ * takes. The agent's map is the belief model: one distance map from the player and one from every
+ * candidate give the cost of each trip, the reward of a frontier cell is the unexplored tiles in its view
+ * that earlier trips in the plan have not already revealed, and an item is worth a whole new view.
+ * Rewards are discounted by the moves spent before they are collected.
+ *
+ * Each decision runs UCT from the player for a number of iterations or until its time runs out,
+ * whichever comes first, and returns the most visited first trip. Only iterations count against the
+ * iteration limit, the distance maps are built before the tree search starts, and a few iterations are
+ * always run even when building them used up the time. The tree is kept between decisions:
+ * once the player has reached the chosen target, the subtree of that trip becomes the new root, otherwise
+ * the old root is kept. Children are matched to the new candidates by their cell and their statistics
+ * are halved, so they guide the new search without outweighing what it finds on the changed map.
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Graph#planAhead(Tile[], int, Direction, Point)
+ */
+public class MonteCarloPlanner {
+	// Candidates are kept in bit masks, so there can be at most 32, fewer keeps each decision cheap
+	private static final int maxCandidates = 8;
+	private static final int maxDepth = 4;
+	private static final int viewRadius = 2;
+	// An item is worth as much as a view of only unexplored tiles
+	private static final double itemReward = (2 * viewRadius + 1) * (2 * viewRadius + 1);
+	private static final double discount = 0.97;
+	private static final double exploration = 0.7;
+	private static final double reuseDecay = 0.5;
+	private static final int noCost = -1;
+	// Iterations run by every decision whatever its time limit, also how often the time is checked
+	private static final int minIterations = 64;
+
+	/**
+	 * Nodes of a search tree in parallel arrays, node 0 is the root and each node is the plan of
+	 * trips on the path down to it
+	 */
+	private static class Tree {
+		int size;
+		int[] candidate = new int[64];
+		int[] cell = new int[64];
+		int[] parent = new int[64];
+		int[] child = new int[64];
+		int[] sibling = new int[64];
+		int[] mask = new int[64];
+		int[] elapsed = new int[64];
+		double[] value = new double[64];
+		double[] visits = new double[64];
+		double[] total = new double[64];
+
+		int add(int p, int c, int cellIndex, int m, int e, double v) {
+			if (size == candidate.length) grow(size * 2);
+			int node = size++;
+			candidate[node] = c;
+			cell[node] = cellIndex;
+			parent[node] = p;
+			child[node] = -1;
+			sibling[node] = -1;
+			mask[node] = m;
+			elapsed[node] = e;
+			value[node] = v;
+			visits[node] = 0;
+			total[node] = 0;
+			if (p >= 0) {
+				sibling[node] = child[p];
+				child[p] = node;
+			}
+			return node;
+		}
+
+		void grow(int n) {
+			candidate = Arrays.copyOf(candidate, n);
+			cell = Arrays.copyOf(cell, n);
+			parent = Arrays.copyOf(parent, n);
+			child = Arrays.copyOf(child, n);
+			sibling = Arrays.copyOf(sibling, n);
+			mask = Arrays.copyOf(mask, n);
+			elapsed = Arrays.copyOf(elapsed, n);
+			value = Arrays.copyOf(value, n);
+			visits = Arrays.copyOf(visits, n);
+			total = Arrays.copyOf(total, n);
+		}
+
+		void clear() {
+			size = 0;
+			add(-1, -1, -1, 0, 0, 0);
+		}
+	}
+
+	private WorldMap world;
+	private AStarSearch search;
+	private CellSet frontier;
+	private Random rand;
+	private int iterationBudget;
+	private long timeBudgetNanos;
+
+	// Candidates of the current decision, their reward and the cost of travelling between them
+	private int[] candidateCell;
+	private boolean[] candidateItem;
+	private double[] gain;
+	private int[] startCost;
+	private int[][] cost;
+	private int[][] shared;
+	private int candidates;
+	// Frontier cells ranked by gain over cost while choosing the candidates
+	private int[] rankCell;
+	private double[] rankScore;
+
+	// Tree kept between decisions, and the one it is copied into when it is rerooted
+	private Tree tree;
+	private Tree spare;
+	private int chosenCell;
+	private int iterations;
+	// If the last decision chose its target without the tree having a trip to it
+	private boolean fellBack;
+
+	/**
+	 * Constructor for a planner that searches on the agent's map
+	 * @param world			Map of the graph
+	 * @param search		Search engine of the graph, its results are overwritten by each decision
+	 * @param frontier		Unexplored cells next to a known tile the player can stand on
+	 * @param rand			Source of the random choices made by rollouts
+	 */
+	public MonteCarloPlanner(WorldMap world, AStarSearch search, CellSet frontier, Random rand) {
+		this.world = world;
+		this.search = search;
+		this.frontier = frontier;
+		this.rand = rand;
+		iterationBudget = 2000;
+		timeBudgetNanos = 5_000_000;
+		candidateCell = new int[maxCandidates];
+		candidateItem = new boolean[maxCandidates];
+		gain = new double[maxCandidates];
+		startCost = new int[maxCandidates];
+		cost = new int[maxCandidates][maxCandidates];
+		shared = new int[maxCandidates][maxCandidates];
+		rankCell = new int[maxCandidates];
+		rankScore = new double[maxCandidates];
+		tree = new Tree();
+		spare = new Tree();
+		tree.clear();
+		chosenCell = -1;
+	}
+
+	/**
+	 * Sets how much work each decision may do
+	 * @param iterations	Most UCT iterations for a decision
+	 * @param nanos			Most time for a decision, 0 for no time limit
+	 */
+	public void setBudget(int iterations, long nanos) {
+		iterationBudget = iterations;
+		timeBudgetNanos = nanos;
+	}
+
+	/**
+	 * Number of UCT iterations run by the last decision
+	 * @return		Iterations
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * If the last decision had no trip in its tree and fell back to the first candidate
+	 * @return		True if the target was not chosen by the tree search
+	 */
+	public boolean fellBack() {
+		return fellBack;
+	}
+
+	/**
+	 * Chooses the next target of the player. When it returns, the search engine holds the distance map
+	 * from the player, so the path to the target can be read with AStarSearch.getPathTo.
+	 * @param start				Location of the player
+	 * @param startDirection	Direction the player is facing
+	 * @param inv				Packed inventory of the player
+	 * @param itemCells			Cells of the items worth picking up
+	 * @param itemCount			Number of cells used from the start of itemCells
+	 * @return					Cell of the target or -1 if no candidate can be reached
+	 */
+	public int plan(Point start, Direction startDirection, int inv, int[] itemCells, int itemCount) {
+		long deadline = System.nanoTime() + timeBudgetNanos;
+		iterations = 0;
+		fellBack = false;
+		search.searchReachable(start, startDirection, false, inv);
+		chooseCandidates(itemCells, itemCount);
+		if (candidates == 0) {
+			chosenCell = -1;
+			tree.clear();
+			return -1;
+		}
+		measureCandidates(inv);
+		// Leave the distance map from the player in the search engine for the caller
+		search.searchReachable(start, startDirection, false, inv);
+
+		int startCell = world.cellAt(start.x, start.y);
+		reuseTree(chosenCell >= 0 && manhattan(startCell, chosenCell) <= viewRadius);
+		while (iterations < iterationBudget && (iterations < minIterations || timeBudgetNanos == 0
+				|| iterations % minIterations != 0 || System.nanoTime() < deadline)) {
+			iterate();
+			iterations++;
+		}
+
+		int best = -1;
+		for (int child = tree.child[0]; child >= 0; child = tree.sibling[child]) {
+			if (best < 0 || tree.visits[child] > tree.visits[best]) best = child;
+		}
+		fellBack = best < 0;
+		chosenCell = fellBack ? candidateCell[0] : tree.cell[best];
+		return chosenCell;
+	}
+
+	/**
+	 * Picks the candidates of a decision: the reachable items, then the frontier cells with the best
+	 * gain over cost that are not right next to a candidate already picked
+	 */
+	private void chooseCandidates(int[] itemCells, int itemCount) {
+		candidates = 0;
+		for (int i = 0; i < itemCount && candidates < maxCandidates; i++) {
+			int c = search.getCost(itemCells[i]);
+			if (c <= 0) continue;
+			candidateCell[candidates] = itemCells[i];
+			candidateItem[candidates] = true;
+			gain[candidates] = itemReward;
+			startCost[candidates] = c;
+			candidates++;
+		}
+
+		// Keep the best frontier cells by insertion into a short ranked list
+		int slots = maxCandidates - candidates;
+		int ranked = 0;
+		for (int i = 0; i < frontier.size() && slots > 0; i++) {
+			int cell = frontier.get(i);
+			int c = search.getCost(cell);
+			if (c <= 0) continue;
+			double score = (double) world.countAround(world.cellX(cell), world.cellY(cell), viewRadius, Tile.Unexplored) / c;
+			if (ranked == slots && score <= rankScore[ranked - 1]) continue;
+			if (isNearRanked(cell, ranked)) continue;
+			int j = Math.min(ranked, slots - 1);
+			while (j > 0 && rankScore[j - 1] < score) {
+				rankScore[j] = rankScore[j - 1];
+				rankCell[j] = rankCell[j - 1];
+				j--;
+			}
+			rankScore[j] = score;
+			rankCell[j] = cell;
+			if (ranked < slots) ranked++;
+		}
+		for (int i = 0; i < ranked; i++) {
+			int cell = rankCell[i];
+			candidateCell[candidates] = cell;
+			candidateItem[candidates] = false;
+			gain[candidates] = world.countAround(world.cellX(cell), world.cellY(cell), viewRadius, Tile.Unexplored);
+			startCost[candidates] = search.getCost(cell);
+			candidates++;
+		}
+	}
+
+	/**
+	 * If a frontier cell is close enough to a ranked one that their views mostly overlap
+	 */
+	private boolean isNearRanked(int cell, int ranked) {
+		for (int i = 0; i < ranked; i++) {
+			if (manhattan(cell, rankCell[i]) <= viewRadius) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Fills in the cost of every trip between candidates with one distance map from each of them, and
+	 * the unexplored tiles shared by the views of every pair of frontier candidates
+	 */
+	private void measureCandidates(int inv) {
+		Point from = new Point();
+		for (int i = 0; i < candidates; i++) {
+			from.setLocation(world.cellX(candidateCell[i]), world.cellY(candidateCell[i]));
+			search.searchReachable(from, Direction.NORTH, false, inv);
+			for (int j = 0; j < candidates; j++) {
+				int c = search.getCost(candidateCell[j]);
+				cost[i][j] = (i == j || c <= 0) ? noCost : c;
+			}
+		}
+		for (int i = 0; i < candidates; i++) {
+			for (int j = i + 1; j < candidates; j++) {
+				int s = (candidateItem[i] || candidateItem[j]) ? 0 : sharedUnexplored(candidateCell[i], candidateCell[j]);
+				shared[i][j] = s;
+				shared[j][i] = s;
+			}
+		}
+	}
+
+	/**
+	 * Unexplored tiles in both the view around one cell and the view around another
+	 */
+	private int sharedUnexplored(int a, int b) {
+		int ax = world.cellX(a);
+		int ay = world.cellY(a);
+		int bx = world.cellX(b);
+		int by = world.cellY(b);
+		int count = 0;
+		for (int y = Math.max(ay, by) - viewRadius; y <= Math.min(ay, by) + viewRadius; y++) {
+			for (int x = Math.max(ax, bx) - viewRadius; x <= Math.min(ax, bx) + viewRadius; x++) {
+				if (world.get(x, y) == Tile.Unexplored) count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Reward for reaching a candidate after the candidates in a plan, the tiles in its view that the
+	 * plan has already revealed are not counted again
+	 */
+	private double reward(int candidate, int mask) {
+		if (candidateItem[candidate]) return gain[candidate];
+		int overlap = 0;
+		for (int m = mask; m != 0; m &= m - 1) {
+			overlap = Math.max(overlap, shared[Integer.numberOfTrailingZeros(m)][candidate]);
+		}
+		return Math.max(0, gain[candidate] - overlap);
+	}
+
+	/**
+	 * Cost of the trip from the end of a plan to a candidate
+	 * @param from			Candidate the plan ends at, -1 for the player
+	 */
+	private int tripCost(int from, int to) {
+		return (from < 0) ? startCost[to] : cost[from][to];
+	}
+
+	/**
+	 * One UCT iteration: select down the tree, expand one untried trip, roll out at random and back up
+	 * the discounted return of the whole plan
+	 */
+	private void iterate() {
+		int node = 0;
+		int depth = 0;
+		while (depth < maxDepth) {
+			int untried = untried(node);
+			if (untried != 0) {
+				node = expand(node, untried);
+				depth++;
+				break;
+			}
+			int child = selectChild(node);
+			if (child < 0) break;
+			node = child;
+			depth++;
+		}
+
+		int at = tree.candidate[node];
+		int mask = tree.mask[node];
+		int elapsed = tree.elapsed[node];
+		double value = tree.value[node];
+		for (; depth < maxDepth; depth++) {
+			int options = reachable(at, mask);
+			if (options == 0) break;
+			int next = randomBit(options);
+			elapsed += tripCost(at, next);
+			value += reward(next, mask) * Math.pow(discount, elapsed);
+			mask |= 1 << next;
+			at = next;
+		}
+
+		for (int n = node; n >= 0; n = tree.parent[n]) {
+			tree.visits[n]++;
+			tree.total[n] += value;
+		}
+	}
+
+	/**
+	 * Candidates that can be reached from the end of a plan and are not already in it
+	 */
+	private int reachable(int at, int mask) {
+		int options = 0;
+		for (int i = 0; i < candidates; i++) {
+			if ((mask & (1 << i)) == 0 && tripCost(at, i) != noCost) options |= 1 << i;
+		}
+		return options;
+	}
+
+	/**
+	 * Reachable candidates from a node that do not have a child yet
+	 */
+	private int untried(int node) {
+		int options = reachable(tree.candidate[node], tree.mask[node]);
+		for (int child = tree.child[node]; child >= 0; child = tree.sibling[child]) {
+			options &= ~(1 << tree.candidate[child]);
+		}
+		return options;
+	}
+
+	/**
+	 * Child with the best UCB1 score, returns are scaled by the item reward so they are close to 0..1
+	 */
+	private int selectChild(int node) {
+		double logVisits = Math.log(Math.max(1, tree.visits[node]));
+		int best = -1;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int child = tree.child[node]; child >= 0; child = tree.sibling[child]) {
+			double n = Math.max(tree.visits[child], 1e-9);
+			double score = tree.total[child] / n / itemReward + exploration * Math.sqrt(logVisits / n);
+			if (score > bestScore) {
+				best = child;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+
+	private int expand(int node, int untried) {
+		return addTrip(tree, node, randomBit(untried));
+	}
+
+	/**
+	 * Adds a child for the trip from the end of a node's plan to a candidate
+	 */
+	private int addTrip(Tree t, int node, int next) {
+		int elapsed = t.elapsed[node] + tripCost(t.candidate[node], next);
+		double value = t.value[node] + reward(next, t.mask[node]) * Math.pow(discount, elapsed);
+		return t.add(node, next, candidateCell[next], t.mask[node] | (1 << next), elapsed, value);
+	}
+
+	/**
+	 * Rebuilds the tree for the candidates of this decision. The new root is the child of the chosen
+	 * trip if the player has reached its target, otherwise the old root. Nodes whose target is no longer
+	 * a candidate or can no longer be reached are dropped with everything below them.
+	 * @param advance		If the player reached the target chosen by the last decision
+	 */
+	private void reuseTree(boolean advance) {
+		int root = 0;
+		if (advance) {
+			root = -1;
+			for (int child = tree.child[0]; child >= 0; child = tree.sibling[child]) {
+				if (tree.cell[child] == chosenCell) root = child;
+			}
+		}
+		spare.clear();
+		if (root >= 0) copyChildren(root, 0, tree.value[root]);
+		Tree t = tree;
+		tree = spare;
+		spare = t;
+	}
+
+	/**
+	 * Copies the children of a node of the old tree below a node of the new one, with their statistics
+	 * decayed and measured from the new root
+	 */
+	private void copyChildren(int from, int to, double base) {
+		spare.visits[to] = tree.visits[from] * reuseDecay;
+		spare.total[to] = (tree.total[from] - tree.visits[from] * base) * reuseDecay;
+		for (int child = tree.child[from]; child >= 0; child = tree.sibling[child]) {
+			int next = candidateOf(tree.cell[child]);
+			if (next < 0 || (spare.mask[to] & (1 << next)) != 0) continue;
+			if (tripCost(spare.candidate[to], next) == noCost) continue;
+			copyChildren(child, addTrip(spare, to, next), base);
+		}
+	}
+
+	private int candidateOf(int cell) {
+		for (int i = 0; i < candidates; i++) {
+			if (candidateCell[i] == cell) return i;
+		}
+		return -1;
+	}
+
+	private int randomBit(int mask) {
+		int pick = rand.nextInt(Integer.bitCount(mask));
+		int m = mask;
+		for (; pick > 0; pick--) m &= m - 1;
+		return Integer.numberOfTrailingZeros(m);
+	}
+
+	private int manhattan(int a, int b) {
+		return Math.abs(world.cellX(a) - world.cellX(b)) + Math.abs(world.cellY(a) - world.cellY(b));
+	}
+}
@@ -1,7 +1,28 @@
 /**
- * The move contains the direction that an agent will move towards
+ * The move contains the direction that an agent will move towards.
+ * Moves cannot be changed once made, so one move per direction is shared by every path.
  * @author Saffat Shams Akanda, Richard Luong
  */
 public class Move {
-	public Direction d;
+	private static final Move[] moves = new Move[Direction.values().length];
+	static {
+		for (Direction d: Direction.values()) {
+			moves[d.ordinal()] = new Move(d);
+		}
+	}
+
+	public final Direction d;
+
+	private Move(Direction d) {
+		this.d = d;
+	}
+
+	/**
+	 * Returns the shared move for a direction so paths can be followed without allocating
+	 * @param d		Direction of the move
+	 * @return		Move in the direction or null if the direction is null
+	 */
+	public static Move of(Direction d) {
+		return (d == null) ? null : moves[d.ordinal()];
+	}
 }
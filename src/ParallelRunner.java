@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Plays every (map, seed) pair on a fork join pool. Each game gets its own engine, agent and seeded
+ * random generator and returns an immutable result, so games share no mutable state and a run
+ * gives the same outcomes whatever the number of threads.
+ * With -u the agents plan their items and exploration with that many tree search iterations per decision,
+ * with no time limit so the outcomes do not depend on how busy the threads are.
+ * Usage: java ParallelRunner [-m maxmoves] [-n seeds] [-s firstSeed] [-t threads] [-u iterations] map1.in map2.in ...
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see BatchRunner
+ */
+public class ParallelRunner {
+	private static final int defaultMaxMoves = 10000;
+
+	/**
+	 * A map and the seed of the agent that will play it
+	 */
+	private static class Game {
+		final String mapName;
+		final Stepping template;
+		final long seed;
+
+		Game(String mapName, Stepping template, long seed) {
+			this.mapName = mapName;
+			this.template = template;
+			this.seed = seed;
+		}
+
+		GameResult play(int maxMoves, int planIterations) {
+			Stepping engine = new Stepping(template);
+			Agent agent = new Agent(new Random(seed));
+			if (planIterations > 0) agent.usePlanAhead(planIterations, 0);
+			return engine.play(agent, maxMoves).forGame(mapName, seed);
+		}
+	}
+
+	/**
+	 * Plays each map once for every seed in [firstSeed, firstSeed + seeds)
+	 * @param mapNames			Paths of the maps to be played
+	 * @param seeds				Number of seeds played on each map
+	 * @param firstSeed			Seed of the first game on each map
+	 * @param maxMoves			Move limit for each game
+	 * @param threads			Parallelism of the pool the games run on
+	 * @param planIterations	Tree search iterations for each planning decision, 0 to not plan ahead
+	 * @return					Result of each game, grouped by map in the order given then by seed
+	 * @throws IOException		If a map cannot be read
+	 */
+	public static List<GameResult> run(List<String> mapNames, int seeds, long firstSeed, int maxMoves, int threads,
+			int planIterations)
+			throws IOException, InterruptedException {
+		// Maps are only read once, each game plays on its own copy
+		List<Game> games = new ArrayList<Game>();
+		for (String mapName: mapNames) {
+			Stepping template = new Stepping(mapName);
+			for (int i = 0; i < seeds; i++) {
+				games.add(new Game(mapName, template, firstSeed + i));
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.submit(() -> games.parallelStream()
+					.map(game -> game.play(maxMoves, planIterations))
+					.collect(Collectors.toList())).get();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Prints the number of wins, mean moves of the won games and time spent on each map
+	 * @param results		Results grouped by map
+	 */
+	private static void printSummary(List<GameResult> results) {
+		int i = 0;
+		while (i < results.size()) {
+			String mapName = results.get(i).getMapName();
+			int games = 0;
+			int won = 0;
+			long wonMoves = 0;
+			long nanos = 0;
+			for (; i < results.size() && results.get(i).getMapName().equals(mapName); i++) {
+				GameResult r = results.get(i);
+				games++;
+				nanos += r.getWallTimeNanos();
+				if (r.isWon()) {
+					won++;
+					wonMoves += r.getMoves();
+				}
+			}
+			System.out.printf("%s: won %d/%d, mean moves when won %.1f, %.1f ms\n",
+					mapName, won, games, (won == 0) ? 0.0 : (double) wonMoves / won, nanos / 1e6);
+		}
+	}
+
+	public static void main(String[] args) {
+		int maxMoves = defaultMaxMoves;
+		int seeds = 1;
+		long firstSeed = 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int planIterations = 0;
+		boolean verbose = false;
+		List<String> mapNames = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-m") && i + 1 < args.length) {
+				maxMoves = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-n") && i + 1 < args.length) {
+				seeds = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-s") && i + 1 < args.length) {
+				firstSeed = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-t") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-u") && i + 1 < args.length) {
+				planIterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-v")) {
+				verbose = true;
+			} else {
+				mapNames.add(args[i]);
+			}
+		}
+		if (mapNames.isEmpty()) {
+			System.out.println("Usage: java ParallelRunner [-m maxmoves] [-n seeds] [-s firstSeed] [-t threads] [-u iterations] [-v] "
+					+ "map1.in map2.in ...");
+			System.exit(-1);
+		}
+
+		long start = System.nanoTime();
+		List<GameResult> results;
+		try {
+			results = run(mapNames, seeds, firstSeed, maxMoves, threads, planIterations);
+		} catch (IOException e) {
+			System.out.println("Could not read map: " + e.getMessage());
+			System.exit(-1);
+			return;
+		} catch (InterruptedException e) {
+			System.out.println("Interrupted");
+			System.exit(-1);
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (verbose) {
+			for (GameResult r: results) System.out.println(r);
+		}
+		printSummary(results);
+		int won = 0;
+		for (GameResult r: results) {
+			if (r.isWon()) won++;
+		}
+		System.out.printf("Won %d/%d games on %d threads in %.1f s (%.0f games/min)\n",
+				won, results.size(), threads, elapsed / 1e9, results.size() / (elapsed / 6e10));
+	}
+}
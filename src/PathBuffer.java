@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+/**
+ * A path stored as an array of Direction ordinals. Moves are consumed from the front through a cursor,
+ * so a path can be replayed and copied without allocating; the array only grows when a longer path
+ * is written into it.
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see AStarSearch#getPath(PathBuffer)
+ */
+public class PathBuffer {
+	private static final Direction[] directions = Direction.values();
+
+	private byte[] moves;
+	private int cursor;
+	private int length;
+
+	/**
+	 * Constructor for an empty path
+	 */
+	public PathBuffer() {
+		moves = new byte[64];
+	}
+
+	/**
+	 * Number of moves left in the path
+	 * @return		Moves left
+	 */
+	public int size() {
+		return length - cursor;
+	}
+
+	public boolean isEmpty() {
+		return cursor == length;
+	}
+
+	/**
+	 * Returns the next move without consuming it
+	 * @return		Direction of the next move or null if the path is empty
+	 */
+	public Direction peek() {
+		return (cursor == length) ? null : directions[moves[cursor]];
+	}
+
+	/**
+	 * Consumes the next move
+	 * @return		Direction of the next move or null if the path is empty
+	 */
+	public Direction poll() {
+		return (cursor == length) ? null : directions[moves[cursor++]];
+	}
+
+	/**
+	 * Returns a move ahead of the cursor without consuming anything
+	 * @param i		Offset from the next move, must be less than size()
+	 * @return		Direction of the move
+	 */
+	public Direction get(int i) {
+		return directions[moves[cursor + i]];
+	}
+
+	/**
+	 * Removes all moves from the path
+	 */
+	public void clear() {
+		cursor = 0;
+		length = 0;
+	}
+
+	/**
+	 * Replaces this path with the moves left in another path
+	 * @param other		Path to be copied
+	 */
+	public void copyFrom(PathBuffer other) {
+		int n = other.size();
+		reset(n);
+		System.arraycopy(other.moves, other.cursor, moves, 0, n);
+	}
+
+	/**
+	 * Empties the path and makes room for a path of the given length, to be filled with set()
+	 * @param n		Length of the new path
+	 */
+	void reset(int n) {
+		if (n > moves.length) moves = new byte[Math.max(n, moves.length * 2)];
+		cursor = 0;
+		length = n;
+	}
+
+	/**
+	 * Appends a move to the end of the path
+	 * @param d		Direction of the move
+	 */
+	void add(Direction d) {
+		if (length == moves.length) moves = Arrays.copyOf(moves, length * 2);
+		moves[length++] = (byte) d.ordinal();
+	}
+
+	/**
+	 * Sets a move of a path being written after reset()
+	 * @param i		Index of the move from the start of the path
+	 * @param d		Direction of the move
+	 */
+	void set(int i, Direction d) {
+		moves[i] = (byte) d.ordinal();
+	}
+}
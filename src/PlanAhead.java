@@ -0,0 +1,65 @@
+import java.awt.Point;
+import java.util.ArrayList;
+
+/**
+ * The PlanAhead behaviour is used when the agent follows a trip chosen by Monte Carlo tree search,
+ * either to an item or to a point on the edge of the explored area
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see MonteCarloPlanner
+ */
+public class PlanAhead implements Behaviour{
+	private Graph map;
+	private ArrayList<Tile> inventory;
+	private Point targetPos;
+
+	/**
+	 * Constructor for the PlanAhead behaviour
+	 * @param map	The 2D array of tiles containing the area explored so far by the agent
+	 * @param inv	The list of items that the agent is holding
+	 * @param targetPos The position at the end of the planned trip
+	 */
+	public PlanAhead(Graph map, ArrayList<Tile> inv, Point targetPos) {
+		this.map = map;
+		this.inventory = inv;
+		this.targetPos = targetPos;
+	}
+
+	/**
+	 * Return the coordinates of the tile at the end of the planned trip
+	 */
+	@Override
+	public Point getGoal() {
+		return this.targetPos;
+	}
+
+	/**
+	 * Uses Manhattan distance between the current position and the goal point
+	 * to calculate a heuristic
+	 * @param goal					Destination point
+	 * @param currPosition			Starting point
+	 * @return						Heuristic value to goal
+	 */
+	@Override
+	public int returnHeuristic(Point goal, Point currPosition) {
+		return Math.abs(goal.x - currPosition.x) + Math.abs(goal.y - currPosition.y);
+	}
+
+	/**
+	 * Trips are planned on paths that use no stepping stones
+	 * @return			If the agent is allowed to use stepping stones
+	 */
+	@Override
+	public boolean canUseStone() {
+		return false;
+	}
+
+	/**
+	 * Returns the name of the behavior
+	 * @return			name of behaviour
+	 */
+	@Override
+	public String getBehaviour() {
+		return "PlanAhead";
+	}
+
+}
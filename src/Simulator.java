@@ -0,0 +1,361 @@
+import java.util.Arrays;
+
+/**
+ * Rules of the game, moved out of the Stepping engine so a game can be played forward and then taken
+ * back. The world is one flat byte array of tile characters with the start of each row stored separately,
+ * since rows of a map can have different lengths. Every action applied is logged as the player's state
+ * packed into one long and the old value of each tile it changed, so undo restores exactly the state
+ * before the action and a rollout costs a few bytes per step instead of a copy of the map.
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Stepping#apply(char)
+ */
+public class Simulator {
+	public static final int EAST = 0;
+	public static final int NORTH = 1;
+	public static final int WEST = 2;
+	public static final int SOUTH = 3;
+
+	private static final int haveAxe = 1;
+	private static final int haveKey = 2;
+	private static final int haveGold = 4;
+	private static final int offMap = 8;
+	private static final int gameWon = 16;
+	private static final int gameLost = 32;
+
+	private byte[] tiles;
+	// Index in tiles of the first tile of each row, with the end of the last row after it
+	private int[] rowStart;
+	private int rows;
+	private int startRow;
+	private int startCol;
+
+	// Current state of the player
+	private int row;
+	private int col;
+	private int dirn;
+	private int stones;
+	private int flags;
+
+	// Packed state before each logged action, and how many tile changes had been logged before it
+	private long[] stateLog;
+	private int[] tileMark;
+	private int depth;
+	// Index and old value of every tile changed by the logged actions
+	private int[] tileIndex;
+	private byte[] tileOld;
+	private int tileChanges;
+
+	/**
+	 * Constructor for a game starting with the player at its start position
+	 * @param map			Rows of the map as read, the player's marker stays until the player first moves off it
+	 * @param row			Row of the player
+	 * @param col			Column of the player
+	 * @param dirn			Direction the player faces, one of EAST, NORTH, WEST or SOUTH
+	 */
+	public Simulator(char[][] map, int row, int col, int dirn) {
+		rows = map.length;
+		rowStart = new int[rows + 1];
+		for (int r = 0; r < rows; r++) {
+			rowStart[r + 1] = rowStart[r] + map[r].length;
+		}
+		tiles = new byte[rowStart[rows]];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < map[r].length; c++) {
+				tiles[rowStart[r] + c] = (byte) map[r][c];
+			}
+		}
+		this.row = row;
+		this.col = col;
+		this.dirn = dirn;
+		startRow = row;
+		startCol = col;
+		stateLog = new long[64];
+		tileMark = new int[64];
+		tileIndex = new int[64];
+		tileOld = new byte[64];
+	}
+
+	/**
+	 * Copy of the current state of another game, without its log
+	 * @param other			Game to be copied
+	 */
+	public Simulator(Simulator other) {
+		tiles = other.tiles.clone();
+		rowStart = other.rowStart;
+		rows = other.rows;
+		startRow = other.startRow;
+		startCol = other.startCol;
+		row = other.row;
+		col = other.col;
+		dirn = other.dirn;
+		stones = other.stones;
+		flags = other.flags;
+		stateLog = new long[64];
+		tileMark = new int[64];
+		tileIndex = new int[64];
+		tileOld = new byte[64];
+	}
+
+	/**
+	 * Applies one action, logging it so it can be undone. An action that is not allowed, such as
+	 * walking into a wall, changes nothing but is still logged.
+	 * @param action		Action character, upper or lower case
+	 * @return				True if the action changed the state of the game
+	 */
+	public boolean apply(char action) {
+		if (depth == stateLog.length) {
+			stateLog = Arrays.copyOf(stateLog, depth * 2);
+			tileMark = Arrays.copyOf(tileMark, depth * 2);
+		}
+		stateLog[depth] = packState();
+		tileMark[depth] = tileChanges;
+		depth++;
+
+		if (action == 'L' || action == 'l') {
+			dirn = (dirn + 1) % 4;
+			return true;
+		}
+		if (action == 'R' || action == 'r') {
+			dirn = (dirn + 3) % 4;
+			return true;
+		}
+		int newRow = row;
+		int newCol = col;
+		switch (dirn) {
+		case NORTH: newRow--; break;
+		case SOUTH: newRow++; break;
+		case EAST:  newCol++; break;
+		case WEST:  newCol--; break;
+		}
+
+		if (!onMap(newRow, newCol)) {
+			if (action != 'F' && action != 'f') return false;
+			if ((flags & offMap) == 0) {
+				set(row, col, '~');
+				flags |= offMap;
+			}
+			row = newRow;
+			col = newCol;
+			flags |= gameLost;
+			return true;
+		}
+
+		char ch = get(newRow, newCol);
+		switch (action) {
+		case 'F': case 'f':
+			// Can't move into an obstacle
+			if (ch == '*' || ch == 'T' || ch == '-') return false;
+			if ((flags & offMap) == 0 && get(row, col) != 'O') set(row, col, ' ');
+			if (ch == '~') {
+				if (stones > 0) {
+					stones--;
+					if ((flags & offMap) == 0) set(newRow, newCol, 'O');
+				} else {
+					flags |= gameLost;
+				}
+			}
+			row = newRow;
+			col = newCol;
+			switch (ch) {
+			case 'a': flags |= haveAxe;  break;
+			case 'k': flags |= haveKey;  break;
+			case 'g': flags |= haveGold; break;
+			case 'o': stones++;          break;
+			}
+			if ((flags & haveGold) != 0 && row == startRow && col == startCol) flags |= gameWon;
+			if ((flags & offMap) == 0 && get(row, col) != 'O') set(row, col, ' ');
+			flags &= ~offMap;
+			return true;
+
+		case 'C': case 'c':
+			if (ch == 'T' && (flags & haveAxe) != 0) {
+				set(newRow, newCol, ' ');
+				return true;
+			}
+			break;
+
+		case 'U': case 'u':
+			if (ch == '-' && (flags & haveKey) != 0) {
+				set(newRow, newCol, ' ');
+				return true;
+			}
+			break;
+		}
+		return false;
+	}
+
+	/**
+	 * Applies actions in order until they run out or the game is won or lost
+	 * @param actions		Action characters as bytes
+	 * @return				Number of actions applied, each of them is logged
+	 */
+	public int applySequence(byte[] actions) {
+		int applied = 0;
+		while (applied < actions.length && !isOver()) {
+			apply((char) actions[applied++]);
+		}
+		return applied;
+	}
+
+	/**
+	 * Takes back the last logged action
+	 * @return				False if there was no action to take back
+	 */
+	public boolean undo() {
+		if (depth == 0) return false;
+		depth--;
+		int mark = tileMark[depth];
+		while (tileChanges > mark) {
+			tileChanges--;
+			tiles[tileIndex[tileChanges]] = tileOld[tileChanges];
+		}
+		unpackState(stateLog[depth]);
+		return true;
+	}
+
+	/**
+	 * Takes back logged actions until only a number of them are left
+	 * @param depth			Number of logged actions to keep, no more than getDepth
+	 */
+	public void undoTo(int depth) {
+		while (this.depth > depth) undo();
+	}
+
+	/**
+	 * Number of logged actions that can be taken back
+	 * @return				Depth of the log
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Forgets the logged actions so the current state can no longer be taken back
+	 */
+	public void clearLog() {
+		depth = 0;
+		tileChanges = 0;
+	}
+
+	/**
+	 * Writes the 5 x 5 view around the player into an array, rotated so the player faces up
+	 * @param view			Array to be overwritten
+	 * @return				The same array
+	 */
+	public char[][] getView(char[][] view) {
+		int r = 0;
+		int c = 0;
+		for (int i = -2; i <= 2; i++) {
+			for (int j = -2; j <= 2; j++) {
+				switch (dirn) {
+				case NORTH: r = row + i; c = col + j; break;
+				case SOUTH: r = row - i; c = col - j; break;
+				case EAST:  r = row + j; c = col - i; break;
+				case WEST:  r = row - j; c = col + i; break;
+				}
+				view[2 + i][2 + j] = onMap(r, c) ? get(r, c) : '.';
+			}
+		}
+		return view;
+	}
+
+	/**
+	 * Tile at a row and column of the map
+	 * @param r				Row, must be on the map
+	 * @param c				Column, must be on the map
+	 * @return				Tile character
+	 */
+	public char get(int r, int c) {
+		return (char) (tiles[rowStart[r] + c] & 0xff);
+	}
+
+	/**
+	 * If a row and column are inside the map
+	 * @param r				Row
+	 * @param c				Column
+	 * @return				True if there is a tile there
+	 */
+	public boolean onMap(int r, int c) {
+		return r >= 0 && r < rows && c >= 0 && c < rowStart[r + 1] - rowStart[r];
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getRowLength(int r) {
+		return rowStart[r + 1] - rowStart[r];
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getCol() {
+		return col;
+	}
+
+	public int getDirection() {
+		return dirn;
+	}
+
+	public int getStones() {
+		return stones;
+	}
+
+	public boolean hasAxe() {
+		return (flags & haveAxe) != 0;
+	}
+
+	public boolean hasKey() {
+		return (flags & haveKey) != 0;
+	}
+
+	public boolean hasGold() {
+		return (flags & haveGold) != 0;
+	}
+
+	public boolean isWon() {
+		return (flags & gameWon) != 0;
+	}
+
+	public boolean isLost() {
+		return (flags & gameLost) != 0;
+	}
+
+	public boolean isOver() {
+		return (flags & (gameWon | gameLost)) != 0;
+	}
+
+	/**
+	 * Changes a tile, logging its old value
+	 */
+	private void set(int r, int c, char ch) {
+		if (tileChanges == tileIndex.length) {
+			tileIndex = Arrays.copyOf(tileIndex, tileChanges * 2);
+			tileOld = Arrays.copyOf(tileOld, tileChanges * 2);
+		}
+		int i = rowStart[r] + c;
+		tileIndex[tileChanges] = i;
+		tileOld[tileChanges] = tiles[i];
+		tileChanges++;
+		tiles[i] = (byte) ch;
+	}
+
+	/**
+	 * Packs the player's state into bits 0-15 row, 16-31 column, 32-47 stones, 48-49 direction and
+	 * 50-55 flags. The row and column can be one step off the map, so they are stored signed.
+	 */
+	private long packState() {
+		return (row & 0xffffL) | (col & 0xffffL) << 16 | (stones & 0xffffL) << 32
+				| (long) dirn << 48 | (long) flags << 50;
+	}
+
+	private void unpackState(long state) {
+		row = (short) state;
+		col = (short) (state >>> 16);
+		stones = (int) ((state >>> 32) & 0xffff);
+		dirn = (int) ((state >>> 48) & 3);
+		flags = (int) (state >>> 50);
+	}
+}
@@ -11,47 +11,55 @@ import java.net.*;
 
 public class Stepping {
 
-   final static int EAST   = 0;
-   final static int NORTH  = 1;
-   final static int WEST   = 2;
-   final static int SOUTH  = 3;
-
-   private char[][] map;
+   final static int EAST   = Simulator.EAST;
+   final static int NORTH  = Simulator.NORTH;
+   final static int WEST   = Simulator.WEST;
+   final static int SOUTH  = Simulator.SOUTH;
+
+   // rules and state of the game, kept outside the engine so
+   // moves can be taken back by lookahead planners
+   private Simulator sim;
    private char[][] view;
 
-   private int nrows;     // number of rows in environment
-   private int irow,icol; // initial row and column
-
-    // current row, column and direction of agent
-   private int row,col,dirn;
+   public Stepping() {
+      view = new char[5][5];
+   }
 
-   private boolean have_axe  = false;
-   private boolean have_key  = false;
-   private boolean have_gold = false;
-   private boolean off_map   = false;
+   // load a map so the engine can be played in-process,
+   // without a socket and without exiting when the game ends
+   public Stepping( String mapName ) throws IOException {
+      this();
+      read_map( mapName );
+   }
 
-   private boolean game_won  = false;
-   private boolean game_lost = false;
+   // copy a loaded map so the same map can be played many times
+   public Stepping( Stepping other ) {
+      this();
+      sim = new Simulator( other.sim );
+   }
 
-   private int num_stones_held = 0;
+   // simulator holding the game, its changes are logged so they can be undone
+   public Simulator simulator() {
+      return( sim );
+   }
 
    private static void swanSong( String message ) {
       System.out.println( message );
       System.exit(-1);
    }
 
-   private void read_map( String mapName ) {
+   private void read_map( String mapName ) throws IOException {
 
       BufferedReader in;
       boolean agent_here;
-      char ch;
-      int r,c;
+      char[][] map;
+      int r,c,row=0,col=0,dirn=NORTH;
 
       map = new char[1024][];
 
       r=-1;
+      in = new BufferedReader(new FileReader(mapName));
       try {
-         in = new BufferedReader(new FileReader(mapName));
          String oneLine = in.readLine();
          while(( oneLine != null )&&( oneLine.length() > 0 )) {
             map[++r] = new char[oneLine.length()];
@@ -73,16 +81,12 @@ public class Stepping {
             oneLine = in.readLine();
          }
       }
-      catch( FileNotFoundException fnfe ) {
-         swanSong( "File Not Found: "+ mapName );
-      }
-      catch( IOException ioe ) {
-         swanSong( "IO Error" );
+      finally {
+         in.close();
       }
 
-      nrows = r+1; // number of rows
-      irow  = row; // initial row
-      icol  = col; // initial column
+      // number of rows is r+1, the agent starts where it was found
+      sim = new Simulator( Arrays.copyOf( map, r+1 ), row, col, dirn );
    }
 
    private void print_map() {
@@ -90,10 +94,10 @@ public class Stepping {
       int r,c;
 
       System.out.println();
-      for( r=0; r < nrows; r++ ) {
-         for( c=0; c < map[r].length; c++ ) {
-            if(( r == row )&&( c == col )) { // agent is here
-               switch( dirn ) {
+      for( r=0; r < sim.getRows(); r++ ) {
+         for( c=0; c < sim.getRowLength(r); c++ ) {
+            if(( r == sim.getRow() )&&( c == sim.getCol() )) { // agent is here
+               switch( sim.getDirection() ) {
                 case NORTH: ch = '^'; break;
                 case EAST:  ch = '>'; break;
                 case SOUTH: ch = 'v'; break;
@@ -101,7 +105,7 @@ public class Stepping {
                }
             }
             else {
-              ch = map[r][c];
+              ch = sim.get( r, c );
             }
             System.out.print( ch );
          }
@@ -110,125 +114,63 @@ public class Stepping {
       System.out.println();
    }
 
-   private boolean apply( char action )
+   // the engine never takes moves back, so nothing is kept in the log
+   public boolean apply( char action )
    {
-      int d_row, d_col;
-      int new_row, new_col;
-      char ch;
+      boolean applied = sim.apply( action );
+      sim.clearLog();
+      return( applied );
+   }
 
-      if(( action == 'L' )||( action == 'l' )) {
-         dirn = ( dirn + 1 ) % 4;
-         return( true );
-      }
-      else if(( action == 'R' )||( action == 'r' )) {
-         dirn = ( dirn + 3 ) % 4;
-         return( true );
-      }
-      else {
-         d_row = 0; d_col = 0;
-         switch( dirn ) {
-          case NORTH: d_row = -1; break;
-          case SOUTH: d_row =  1; break;
-          case EAST:  d_col =  1; break;
-          case WEST:  d_col = -1; break;
-         }
-         new_row = row + d_row;
-         new_col = col + d_col;
-
-         if(  ( new_row < 0 || new_row >= nrows)
-            ||( new_col < 0 || new_col >= map[new_row].length )) {
-            if( action == 'F' || action == 'f' ) {
-               if( !off_map ) {
-                  map[row][col] = '~';
-                  off_map = true;
-               }
-               row = new_row;
-               col = new_col;
-               game_lost = true;
-               return( true );
-            }
-            else {
-               return( false );
-            }
-         }
+   public char[][] get_view() {
+      return( sim.getView( view ));
+   }
 
-         ch = map[new_row][new_col];
+   public boolean game_won() {
+      return( sim.isWon() );
+   }
 
-         switch( action ) {
-         case 'F': case 'f':
-            switch( ch ) { // can't move into an obstacle
-            case '*': case 'T': case '-':
-               return( false );
-            }
-            if( !off_map && map[row][col] != 'O' ) {
-		map[row][col] = ' ';
-	    }
-	    if( ch == '~' ) {
-		if( num_stones_held > 0 ) {
-		    num_stones_held--;
-                    if( !off_map ) map[new_row][new_col] = 'O';
-		}
-                else {
-                    game_lost = true;
-                }
-            }
-            row = new_row;
-            col = new_col;
-
-            switch( ch ) {
-             case 'a': have_axe  = true;     break;
-             case 'k': have_key  = true;     break;
-             case 'g': have_gold = true;     break;
-             case 'o': num_stones_held++;    break;
-            }
-            if( have_gold && row == irow && col == icol ) {
-               game_won = true;
-            }
-            if( !off_map && map[row][col] != 'O' ) {
-		map[row][col] = ' ';
-	    }
-            off_map = false;
-            return( true );
-
-         case 'C': case 'c': // chop
-            if(( ch == 'T' )&& have_axe ) {
-               map[new_row][new_col] = ' ';
-               return( true );
-            }
-            break;
+   public boolean game_lost() {
+      return( sim.isLost() );
+   }
 
-         case 'U': case 'u': // unlock
-            if( ch == '-' && have_key ) {
-               map[new_row][new_col] = ' ';
-               return( true );
-            }
+   // play one game in this JVM until it is won, lost or out of moves
+   public GameResult play( Agent agent, int maxmoves ) {
+      long start = System.nanoTime();
+      char action;
+      int m;
+
+      for( m=1; m <= maxmoves; m++ ) {
+         action = agent.get_action( get_view() );
+         apply( action );
+         if( sim.isOver() ) {
             break;
          }
       }
-      return( false );
+      return( new GameResult( sim.isWon(), sim.isLost(), Math.min( m, maxmoves ),
+                              System.nanoTime() - start ));
    }
 
-   private void get_view() {
-      char ch;
-      int i,j,r=0,c=0;
-
-      for( i = -2; i <= 2; i++ ) {
-         for( j = -2; j <= 2; j++ ) {
-            switch( dirn ) {
-             case NORTH: r = row+i; c = col+j; break;
-             case SOUTH: r = row-i; c = col-j; break;
-             case EAST:  r = row+j; c = col-i; break;
-             case WEST:  r = row-j; c = col+i; break;
-            }
-            if(  ( r >= 0 )&&( r < nrows )
-               &&( c >= 0 )&&( c < map[r].length )) {
-                view[2+i][2+j] = map[r][c];
-            }
-            else {
-                view[2+i][2+j] = '.';
-            }
+   // play one game with an agent connected over a socket until it is
+   // won, lost or out of moves, without printing or exiting
+   public GameResult play( ViewChannel channel, int maxmoves )
+         throws IOException {
+      long start = System.nanoTime();
+      int ch,m;
+
+      for( m=1; m <= maxmoves; m++ ) {
+         channel.writeView( get_view() );
+         ch = channel.readAction();
+         if( ch == -1 ) {
+            throw new EOFException( "Agent disconnected after "+ (m-1) +" moves" );
+         }
+         apply( (char) ch );
+         if( sim.isOver() ) {
+            break;
          }
       }
+      return( new GameResult( sim.isWon(), sim.isLost(), Math.min( m, maxmoves ),
+                              System.nanoTime() - start ));
    }
 
    private static void printUsage()
@@ -248,7 +190,6 @@ public class Stepping {
       int k,m;
 
       stepping = new Stepping();
-      stepping.view = new char[5][5];
 
       k=0;
       while( k < args.length ) {
@@ -288,25 +229,26 @@ public class Stepping {
       if( mapName.length() == 0 ) {
          printUsage();
       }
-      stepping.read_map( mapName );
+      try {
+         stepping.read_map( mapName );
+      }
+      catch( FileNotFoundException fnfe ) {
+         swanSong( "File Not Found: "+ mapName );
+      }
+      catch( IOException ioe ) {
+         swanSong( "IO Error" );
+      }
 
       if( !silent ) {
          stepping.print_map();
       }
 
       if( port != 0 ) {
-         InputStream in            = null;
-         OutputStream out          = null;
-         ServerSocket serverSocket = null;
-         Socket clientSocket       = null;
-         int i,j;
+         ViewChannel channel = null;
+         int ch;
 
          try {
-            serverSocket = new ServerSocket( port );
-            clientSocket = serverSocket.accept();
-            serverSocket.close();
-            in  = clientSocket.getInputStream();
-            out = clientSocket.getOutputStream();
+            channel = ViewChannel.accept( port );
          }
          catch( IOException e ) {
             swanSong( "Could not listen on port: "+ port );
@@ -315,15 +257,13 @@ public class Stepping {
          try {
             for( m=1; m <= maxmoves; m++ ) {
                stepping.get_view();
-               for( i=0; i < 5; i++ ) {
-                   for( j=0; j < 5; j++ ) {
-                       if( !(( i == 2 )&&( j == 2 ))) {
-                          out.write( stepping.view[i][j] );
-                       }
-                   }
+               // send the view as one frame and wait for the action byte
+               channel.writeView( stepping.view );
+               ch = channel.readAction();
+               if( ch == -1 ) {
+                  swanSong("Lost connection to port: "+ port );
                }
-               out.flush();
-               action = (char) in.read();
+               action = (char) ch;
                if( !silent ) {
                  System.out.println("action = "+ action );
                }
@@ -331,10 +271,10 @@ public class Stepping {
                if( !silent ) {
                   stepping.print_map();
                }
-               if( stepping.game_won ) {
+               if( stepping.game_won() ) {
                    swanSong( "Game Won in "+ m +" moves." );
                }
-               else if( stepping.game_lost ) {
+               else if( stepping.game_lost() ) {
                   swanSong( "Game Lost." );
                }
             }
@@ -345,7 +285,7 @@ public class Stepping {
          }
          finally {
             try {
-                clientSocket.close();
+                channel.close();
             }
             catch( IOException e ) {}
          }
@@ -360,10 +300,10 @@ public class Stepping {
             if( !silent ) {
                stepping.print_map();
             }
-            if( stepping.game_won ) {
+            if( stepping.game_won() ) {
                swanSong( "Game Won in "+ m +" moves." );
             }
-            else if( stepping.game_lost ) {
+            else if( stepping.game_lost() ) {
                swanSong( "Game Lost." );
             }
          }
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Game server that keeps listening on one port and plays a game with every agent that connects, so many
+ * agents, or several builds of the agent, can play at once against one process. Connections are given
+ * the maps in the order listed, going round again after the last one, and each session plays its own
+ * copy of its map on its own thread with its own move limit. A map can be listed as map.in:moves to
+ * give its sessions a different move limit from -m. The result of each session is printed as it ends.
+ * Usage: java SteppingServer -p port [-m maxmoves] [-g games] map1.in[:moves] map2.in[:moves] ...
+ * @author Saffat Shams Akanda, Richard Luong
+ * @see Stepping#play(ViewChannel, int)
+ */
+public class SteppingServer {
+	private static final int defaultMaxMoves = 10000;
+
+	/**
+	 * A loaded map and the move limit of the sessions that play it
+	 */
+	private static class Session {
+		final String mapName;
+		final Stepping template;
+		final int maxMoves;
+
+		Session(String mapName, Stepping template, int maxMoves) {
+			this.mapName = mapName;
+			this.template = template;
+			this.maxMoves = maxMoves;
+		}
+	}
+
+	private List<Session> sessions;
+	private AtomicInteger played;
+	private AtomicInteger won;
+
+	/**
+	 * Constructor for a server that plays the given maps
+	 * @param mapNames		Paths of the maps, each optionally followed by :moves
+	 * @param maxMoves		Move limit of maps listed without one
+	 * @throws IOException	If a map cannot be read
+	 */
+	public SteppingServer(List<String> mapNames, int maxMoves) throws IOException {
+		sessions = new ArrayList<Session>();
+		for (String name: mapNames) {
+			int moves = maxMoves;
+			int colon = name.lastIndexOf(':');
+			if (colon > 0) {
+				moves = Integer.parseInt(name.substring(colon + 1));
+				name = name.substring(0, colon);
+			}
+			// Maps are only read once, each session plays on its own copy
+			sessions.add(new Session(name, new Stepping(name), moves));
+		}
+		played = new AtomicInteger();
+		won = new AtomicInteger();
+	}
+
+	/**
+	 * Accepts agents on a port and plays a game with each of them on its own thread
+	 * @param port			Port to listen on
+	 * @param games			Number of agents to accept before waiting for their games to end, 0 for no limit
+	 * @throws IOException	If the port cannot be listened on
+	 */
+	public void serve(int port, int games) throws IOException, InterruptedException {
+		// One platform thread per session, a session spends nearly all of its time blocked on its socket
+		ExecutorService threads = Executors.newCachedThreadPool();
+		try (ServerSocketChannel server = ServerSocketChannel.open()) {
+			server.bind(new InetSocketAddress(port));
+			for (int id = 1; games == 0 || id <= games; id++) {
+				ViewChannel channel = new ViewChannel(server.accept());
+				int sessionId = id;
+				Session session = sessions.get((id - 1) % sessions.size());
+				threads.execute(() -> play(sessionId, session, channel));
+			}
+		} finally {
+			threads.shutdown();
+			threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Plays one session to the end and prints its result
+	 * @param id			Number of the session in the order agents connected
+	 * @param session		Map the session plays
+	 * @param channel		Connection to the agent, closed when the game ends
+	 */
+	private void play(int id, Session session, ViewChannel channel) {
+		try (ViewChannel c = channel) {
+			Stepping engine = new Stepping(session.template);
+			GameResult r = engine.play(c, session.maxMoves);
+			played.incrementAndGet();
+			if (r.isWon()) won.incrementAndGet();
+			System.out.printf("session %d %s: %s in %d moves (%.1f ms)\n",
+					id, session.mapName, r.getOutcome(), r.getMoves(), r.getWallTimeNanos() / 1e6);
+		} catch (IOException e) {
+			played.incrementAndGet();
+			System.out.printf("session %d %s: %s\n", id, session.mapName, e.getMessage());
+		}
+	}
+
+	public int getPlayed() {
+		return played.get();
+	}
+
+	public int getWon() {
+		return won.get();
+	}
+
+	public static void main(String[] args) {
+		int port = 0;
+		int maxMoves = defaultMaxMoves;
+		int games = 0;
+		List<String> mapNames = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-p") && i + 1 < args.length) {
+				port = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-m") && i + 1 < args.length) {
+				maxMoves = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-g") && i + 1 < args.length) {
+				games = Integer.parseInt(args[++i]);
+			} else {
+				mapNames.add(args[i]);
+			}
+		}
+		if (port == 0 || mapNames.isEmpty()) {
+			System.out.println("Usage: java SteppingServer -p port [-m maxmoves] [-g games] map1.in[:moves] map2.in[:moves] ...");
+			System.exit(-1);
+		}
+
+		SteppingServer server;
+		try {
+			server = new SteppingServer(mapNames, maxMoves);
+		} catch (IOException e) {
+			System.out.println("Could not read map: " + e.getMessage());
+			System.exit(-1);
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			server.serve(port, games);
+		} catch (IOException e) {
+			System.out.println("Could not listen on port: " + port);
+			System.exit(-1);
+		} catch (InterruptedException e) {
+			System.out.println("Interrupted");
+			System.exit(-1);
+		}
+		System.out.printf("Won %d/%d sessions in %.1f s\n",
+				server.getWon(), server.getPlayed(), (System.nanoTime() - start) / 1e9);
+	}
+}
@@ -2,18 +2,43 @@
  * Defines all the possible types of tiles on the map
  */
 public enum Tile {
-	Empty(' '), Wall('*'), Tree('T'), Axe('a'), Gold('g'), Key('k'), Door('-'), 
-	StartPosition('s'), Water('~'), StepStone('o'), Player('^'), Unexplored('?'),
-	UsedStepStone('O');
+	Empty(' ', 0), Wall('*', Tile.obstacleFlag | Tile.wallFlag), Tree('T', Tile.obstacleFlag | Tile.needsAxeFlag),
+	Axe('a', Tile.itemFlag), Gold('g', Tile.itemFlag), Key('k', Tile.itemFlag), Door('-', Tile.obstacleFlag | Tile.needsKeyFlag),
+	StartPosition('s', 0), Water('~', Tile.obstacleFlag | Tile.needsStoneFlag), StepStone('o', Tile.itemFlag), Player('^', 0),
+	Unexplored('?', Tile.obstacleFlag | Tile.unexploredFlag), UsedStepStone('O', 0);
 	
+    // Property bits of each tile, obstacles may still be passable with the right item
+    public static final int itemFlag = 1;
+    public static final int obstacleFlag = 2;
+    public static final int needsAxeFlag = 4;
+    public static final int needsKeyFlag = 8;
+    public static final int needsStoneFlag = 16;
+    public static final int wallFlag = 32;
+    public static final int unexploredFlag = 64;
+    
+    // Tile of every ASCII character, characters that are not tiles map to Empty
+    private static final Tile[] byChar = new Tile[128];
+    
+    static {
+    	for (int c = 0; c < byChar.length; c++) {
+    		byChar[c] = Tile.Empty;
+    	}
+    	for (Tile currTile : Tile.values()) {
+    		byChar[currTile.charVal] = currTile;
+    	}
+    }
+    
     public char charVal;
+    public final int flags;
 
     /**
      * Constructor
      * @param charVal Character the tile corresponds to on the map
+     * @param flags Property bits of the tile
      */
-    Tile (char charVal) {
+    Tile (char charVal, int flags) {
         this.charVal = charVal;
+        this.flags = flags;
     }
     
     /**
@@ -22,10 +47,8 @@ public enum Tile {
      * @return Tile which matches the character given
      */
     public static Tile getTile(char tileChar) {
-    	for (Tile currTile : Tile.values()) {
-    		if (currTile.charVal == tileChar) return currTile; 
-    	}
-    	return Tile.Empty;
+    	if (tileChar >= byChar.length) return Tile.Empty;
+    	return byChar[tileChar];
     }
     
     /** 
@@ -34,18 +57,7 @@ public enum Tile {
      * @return whether the tile contains an item
      */
     public static boolean isItem(Tile tile) {
-    	switch (tile) {
-    	case Axe:
-    		return true;
-    	case Gold:
-    		return true;
-    	case Key:
-    		return true;
-    	case StepStone:
-    		return true;
-    	default:
-    		return false;
-    	}
+    	return (tile.flags & itemFlag) != 0;
     }
     
     /**
@@ -54,16 +66,7 @@ public enum Tile {
      * @return			Whether the tile is an obstacle
      */
     public static boolean isObstacle(Tile tile) {
-    	switch (tile) {
-    	case Water:
-    	case Door:
-    	case Tree:
-    	case Wall:
-    	case Unexplored:
-    		return true;
-    	default:
-    		return false;
-    	}
+    	return (tile.flags & obstacleFlag) != 0;
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connection between the game engine and an agent that moves each turn as one frame: the engine sends a
+ * 24 byte view (the 5 x 5 view in row order without the agent's own tile) and the agent answers with a
+ * single action byte. These are exactly the bytes of the original character protocol, so either end can
+ * still talk to a peer that reads and writes one character at a time. Frames are moved with one channel
+ * call each through buffers that are reused every turn, and Nagle's algorithm is turned off because
+ * every frame is waited on by the other end before it sends anything back.
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public class ViewChannel implements Closeable {
+	public static final int viewBytes = 24;
+
+	private SocketChannel channel;
+	private ByteBuffer viewBuffer;
+	private ByteBuffer actionBuffer;
+
+	/**
+	 * Constructor for a connection over a connected channel
+	 * @param channel		Connected socket channel, switched to blocking mode
+	 * @throws IOException	If the socket options cannot be set
+	 */
+	public ViewChannel(SocketChannel channel) throws IOException {
+		this.channel = channel;
+		channel.configureBlocking(true);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		viewBuffer = ByteBuffer.allocateDirect(viewBytes);
+		actionBuffer = ByteBuffer.allocateDirect(1);
+	}
+
+	/**
+	 * Connects an agent to a game engine
+	 * @param host			Host the engine is running on
+	 * @param port			Port the engine is listening on
+	 * @return				Connection to the engine
+	 * @throws IOException	If the engine cannot be reached
+	 */
+	public static ViewChannel connect(String host, int port) throws IOException {
+		return new ViewChannel(SocketChannel.open(new InetSocketAddress(host, port)));
+	}
+
+	/**
+	 * Waits for one agent to connect to a port, the port is closed again once it has
+	 * @param port			Port to listen on
+	 * @return				Connection to the agent
+	 * @throws IOException	If the port cannot be listened on
+	 */
+	public static ViewChannel accept(int port) throws IOException {
+		try (ServerSocketChannel server = ServerSocketChannel.open()) {
+			server.bind(new InetSocketAddress(port));
+			return new ViewChannel(server.accept());
+		}
+	}
+
+	/**
+	 * Sends a view to the agent
+	 * @param view			5 x 5 view, the agent's own tile in the centre is not sent
+	 * @throws IOException	If the connection is lost
+	 */
+	public void writeView(char[][] view) throws IOException {
+		viewBuffer.clear();
+		for (int i = 0; i < 5; i++) {
+			for (int j = 0; j < 5; j++) {
+				if (i != 2 || j != 2) viewBuffer.put((byte) view[i][j]);
+			}
+		}
+		viewBuffer.flip();
+		while (viewBuffer.hasRemaining()) {
+			channel.write(viewBuffer);
+		}
+	}
+
+	/**
+	 * Waits for the next view from the engine
+	 * @param view			5 x 5 view to be overwritten, the centre is left as it is
+	 * @return				False if the engine closed the connection
+	 * @throws IOException	If the connection is lost or closed part way through a view
+	 */
+	public boolean readView(char[][] view) throws IOException {
+		viewBuffer.clear();
+		if (!fill(viewBuffer)) return false;
+		viewBuffer.flip();
+		for (int i = 0; i < 5; i++) {
+			for (int j = 0; j < 5; j++) {
+				if (i != 2 || j != 2) view[i][j] = (char) (viewBuffer.get() & 0xff);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sends an action to the engine
+	 * @param action		Action character
+	 * @throws IOException	If the connection is lost
+	 */
+	public void writeAction(char action) throws IOException {
+		actionBuffer.clear();
+		actionBuffer.put((byte) action);
+		actionBuffer.flip();
+		while (actionBuffer.hasRemaining()) {
+			channel.write(actionBuffer);
+		}
+	}
+
+	/**
+	 * Waits for the next action from the agent
+	 * @return				Action character or -1 if the agent closed the connection
+	 * @throws IOException	If the connection is lost
+	 */
+	public int readAction() throws IOException {
+		actionBuffer.clear();
+		if (!fill(actionBuffer)) return -1;
+		return actionBuffer.get(0) & 0xff;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Reads until a buffer is full
+	 * @param buffer		Buffer to fill
+	 * @return				False if the connection was closed before anything was read
+	 * @throws IOException	If the connection is lost or closed part way through the buffer
+	 */
+	private boolean fill(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				if (buffer.position() == 0) return false;
+				throw new EOFException("Connection closed part way through a frame");
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,315 @@
+import java.util.Arrays;
+
+/**
+ * Sparse, unbounded map of the world addressed by signed X/Y coordinates. The map is split into
+ * 16 x 16 chunks of byte tiles that are only allocated once a tile in them, or in a chunk next to them,
+ * is written, so memory grows with the area explored rather than with the size of the world.
+ *
+ * Every allocated chunk gets a slot, and a cell is addressed by the packed index (slot * 256 + local)
+ * where local is (y * 16 + x) inside the chunk. The tiles of all chunks live in one flat byte array of tile
+ * ordinals indexed by cell, so each chunk is a contiguous row-major 16 x 16 block and a step inside a
+ * chunk is a fixed offset from the cell (see offset). Slots are never moved or freed, so a cell index stays
+ * valid for the whole game and searches can keep per cell data in arrays indexed by it, growing them
+ * when getCapacity grows. Chunks that were never allocated read as unexplored and are outside the
+ * area that searches cover; writing a tile allocates a ring of unexplored chunks around it so searches
+ * can always plan a little past what has been seen.
+ * @author Saffat Shams Akanda, Richard Luong
+ */
+public class WorldMap {
+	public static final int chunkBits = 4;
+	public static final int chunkSize = 1 << chunkBits;
+	public static final int chunkCells = chunkSize * chunkSize;
+	private static final int cellBits = 2 * chunkBits;
+	private static final int localMask = chunkSize - 1;
+	private static final Tile[] tileOf = Tile.values();
+	private static final int[] flagsOf = new int[tileOf.length];
+	private static final byte unexplored = (byte) Tile.Unexplored.ordinal();
+	// Step to the next cell in each direction when it is in the same chunk
+	private static final int[] offsets = { chunkSize, -chunkSize, -1, 1 };
+
+	static {
+		for (Tile tile: tileOf) {
+			flagsOf[tile.ordinal()] = tile.flags;
+		}
+	}
+
+	// Directions used by neighbour, in the same order as Direction.NORTH, SOUTH, WEST, EAST
+	public static final int north = 0;
+	public static final int south = 1;
+	public static final int west = 2;
+	public static final int east = 3;
+
+	// Tile ordinal of every cell, and the chunk coordinates of each slot
+	private byte[] tiles;
+	private int[] chunkX;
+	private int[] chunkY;
+	// Slot of the chunk next to each slot in each direction, -1 if it is not allocated
+	private int[] neighbourSlot;
+	private int slots;
+
+	// Open addressing table from packed chunk coordinates to slot + 1, 0 marks an empty entry
+	private long[] tableKeys;
+	private int[] tableSlots;
+	// Most lookups are near the last one, so the last chunk found is checked before the table
+	private long lastKey;
+	private int lastSlot;
+
+	/**
+	 * Constructor for a map where every tile is unexplored
+	 */
+	public WorldMap() {
+		tiles = new byte[16 * chunkCells];
+		chunkX = new int[16];
+		chunkY = new int[16];
+		neighbourSlot = new int[16 * 4];
+		tableKeys = new long[64];
+		tableSlots = new int[64];
+		lastSlot = -1;
+	}
+
+	/**
+	 * Number of cell indices in use, every cell index is below it
+	 * @return		Number of chunks allocated times the cells in a chunk
+	 */
+	public int getCapacity() {
+		return slots << cellBits;
+	}
+
+	/**
+	 * Number of chunks allocated
+	 * @return		Number of slots in use
+	 */
+	public int getChunks() {
+		return slots;
+	}
+
+	/**
+	 * Returns the tile at an X/Y coord
+	 * @param x			X coordinate
+	 * @param y			Y coordinate
+	 * @return			Tile at the location, unexplored if its chunk has not been allocated
+	 */
+	public Tile get(int x, int y) {
+		int slot = findSlot(x >> chunkBits, y >> chunkBits);
+		if (slot < 0) return Tile.Unexplored;
+		return tileOf[tiles[(slot << cellBits) | local(x, y)]];
+	}
+
+	/**
+	 * Returns the tile of a cell
+	 * @param cell		Cell index
+	 * @return			Tile of the cell
+	 */
+	public Tile getCell(int cell) {
+		return tileOf[tiles[cell]];
+	}
+
+	/**
+	 * Property bits of the tile of a cell, read without going through the Tile object
+	 * @param cell		Cell index
+	 * @return			Flags of the tile, see Tile.flags
+	 */
+	public int flags(int cell) {
+		return flagsOf[tiles[cell]];
+	}
+
+	/**
+	 * Changes the tile at an X/Y coord, allocating its chunk and the chunks around it if needed
+	 * @param x			X coordinate
+	 * @param y			Y coordinate
+	 * @param tile		New tile
+	 * @return			Cell index of the location
+	 */
+	public int set(int x, int y, Tile tile) {
+		int cx = x >> chunkBits;
+		int cy = y >> chunkBits;
+		int slot = findSlot(cx, cy);
+		if (slot < 0) slot = allocate(cx, cy);
+		// Keep a ring of chunks around anything written so searches can reach past it
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dx = -1; dx <= 1; dx++) {
+				if (findSlot(cx + dx, cy + dy) < 0) allocate(cx + dx, cy + dy);
+			}
+		}
+		int cell = (slot << cellBits) | local(x, y);
+		tiles[cell] = (byte) tile.ordinal();
+		return cell;
+	}
+
+	/**
+	 * Number of tiles of one kind in the square of a given radius around an X/Y coord, such as the
+	 * unexplored tiles the player would see standing there
+	 * @param x			X coordinate of the centre
+	 * @param y			Y coordinate of the centre
+	 * @param radius	Tiles counted on each side of the centre
+	 * @param tile		Tile to count
+	 * @return			Number of matching tiles in the square
+	 */
+	public int countAround(int x, int y, int radius, Tile tile) {
+		int count = 0;
+		for (int dy = -radius; dy <= radius; dy++) {
+			for (int dx = -radius; dx <= radius; dx++) {
+				if (get(x + dx, y + dy) == tile) count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Cell index of an X/Y coord
+	 * @param x			X coordinate
+	 * @param y			Y coordinate
+	 * @return			Cell index or -1 if the chunk of the location has not been allocated
+	 */
+	public int cellAt(int x, int y) {
+		int slot = findSlot(x >> chunkBits, y >> chunkBits);
+		if (slot < 0) return -1;
+		return (slot << cellBits) | local(x, y);
+	}
+
+	/**
+	 * X coordinate of a cell
+	 * @param cell		Cell index
+	 * @return			X coordinate
+	 */
+	public int cellX(int cell) {
+		return (chunkX[cell >> cellBits] << chunkBits) + (cell & localMask);
+	}
+
+	/**
+	 * Y coordinate of a cell
+	 * @param cell		Cell index
+	 * @return			Y coordinate
+	 */
+	public int cellY(int cell) {
+		return (chunkY[cell >> cellBits] << chunkBits) + ((cell >> chunkBits) & localMask);
+	}
+
+	/**
+	 * Cell next to a cell, crossing into the next chunk when the cell is on the edge of its chunk
+	 * @param cell		Cell index
+	 * @param dir		One of north, south, west or east
+	 * @return			Cell index of the neighbour or -1 if its chunk has not been allocated
+	 */
+	public int neighbour(int cell, int dir) {
+		if (!onEdge(cell, dir)) return cell + offsets[dir];
+		int slot = neighbourSlot[(cell >> cellBits) * 4 + dir];
+		if (slot < 0) return -1;
+		// The neighbour is on the opposite edge of the next chunk, in the same row or column
+		int across = (dir == north || dir == south) ? localMask << chunkBits : localMask;
+		return (slot << cellBits) | ((cell & (chunkCells - 1)) ^ across);
+	}
+
+	/**
+	 * Offset from a cell to its neighbour in a direction when both are in the same chunk
+	 * @param dir		One of north, south, west or east
+	 * @return			Difference between the cell indices
+	 */
+	public static int offset(int dir) {
+		return offsets[dir];
+	}
+
+	/**
+	 * If the neighbour of a cell in a direction is in another chunk, so offset cannot be used to reach it
+	 * @param cell		Cell index
+	 * @param dir		One of north, south, west or east
+	 * @return			True if the cell is on that edge of its chunk
+	 */
+	public static boolean onEdge(int cell, int dir) {
+		switch (dir) {
+		case north:
+			return ((cell >> chunkBits) & localMask) == localMask;
+		case south:
+			return ((cell >> chunkBits) & localMask) == 0;
+		case west:
+			return (cell & localMask) == 0;
+		default:
+			return (cell & localMask) == localMask;
+		}
+	}
+
+	private static int local(int x, int y) {
+		return ((y & localMask) << chunkBits) | (x & localMask);
+	}
+
+	/**
+	 * Allocates an unexplored chunk and links it with the chunks around it
+	 * @param cx		Chunk X coordinate
+	 * @param cy		Chunk Y coordinate
+	 * @return			Slot of the new chunk
+	 */
+	private int allocate(int cx, int cy) {
+		if (slots == chunkX.length) {
+			int size = slots * 2;
+			tiles = Arrays.copyOf(tiles, size * chunkCells);
+			chunkX = Arrays.copyOf(chunkX, size);
+			chunkY = Arrays.copyOf(chunkY, size);
+			neighbourSlot = Arrays.copyOf(neighbourSlot, size * 4);
+		}
+		int slot = slots++;
+		Arrays.fill(tiles, slot << cellBits, (slot + 1) << cellBits, unexplored);
+		chunkX[slot] = cx;
+		chunkY[slot] = cy;
+		link(slot, north, findSlot(cx, cy + 1), south);
+		link(slot, south, findSlot(cx, cy - 1), north);
+		link(slot, west, findSlot(cx - 1, cy), east);
+		link(slot, east, findSlot(cx + 1, cy), west);
+		insert(cx, cy, slot);
+		return slot;
+	}
+
+	private void link(int slot, int dir, int other, int back) {
+		neighbourSlot[slot * 4 + dir] = other;
+		if (other >= 0) neighbourSlot[other * 4 + back] = slot;
+	}
+
+	/**
+	 * Slot of a chunk
+	 * @param cx		Chunk X coordinate
+	 * @param cy		Chunk Y coordinate
+	 * @return			Slot or -1 if the chunk has not been allocated
+	 */
+	private int findSlot(int cx, int cy) {
+		long key = key(cx, cy);
+		if (key == lastKey && lastSlot >= 0) return lastSlot;
+		int mask = tableKeys.length - 1;
+		for (int i = hash(key) & mask; tableSlots[i] != 0; i = (i + 1) & mask) {
+			if (tableKeys[i] == key) {
+				lastKey = key;
+				lastSlot = tableSlots[i] - 1;
+				return lastSlot;
+			}
+		}
+		return -1;
+	}
+
+	private void insert(int cx, int cy, int slot) {
+		// Keep the table at most half full so probe sequences stay short
+		if (slots * 2 > tableKeys.length) {
+			long[] oldKeys = tableKeys;
+			int[] oldSlots = tableSlots;
+			tableKeys = new long[oldKeys.length * 2];
+			tableSlots = new int[oldSlots.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldSlots[i] != 0) put(oldKeys[i], oldSlots[i]);
+			}
+		}
+		put(key(cx, cy), slot + 1);
+	}
+
+	private void put(long key, int value) {
+		int mask = tableKeys.length - 1;
+		int i = hash(key) & mask;
+		while (tableSlots[i] != 0) i = (i + 1) & mask;
+		tableKeys[i] = key;
+		tableSlots[i] = value;
+	}
+
+	private static long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xffffffffL);
+	}
+
+	private static int hash(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40);
+	}
+}